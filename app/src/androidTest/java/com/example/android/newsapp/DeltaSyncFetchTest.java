@@ -0,0 +1,189 @@
+package com.example.android.newsapp;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Asks each section for its news since its own watermark, against a local server. Runs on a
+ * device, where the responses are parsed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DeltaSyncFetchTest {
+
+    private static final int PAGE_SIZE = 3;
+
+    private static final String NOON = "2026-10-18T12:00:00Z";
+    private static final String ONE_PM = "2026-10-18T13:00:00Z";
+    private static final String TWO_PM = "2026-10-18T14:00:00Z";
+
+    private MockWebServer mServer;
+    private NewsTransport mDefaultTransport;
+    private CircuitBreaker mDefaultCircuitBreaker;
+    private CircuitBreaker mDefaultArticleCircuitBreaker;
+
+    // The bodies served, by tag, and by tag and from-date for the deltas
+    private final Map<String, String> mBodies = new HashMap<>();
+
+    // The from-date asked for each tag, null when the whole page was
+    private final Map<String, String> mFromDates = new HashMap<>();
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                HttpUrl url = request.getRequestUrl();
+                String tag = url.queryParameter(GuardianApi.TAG_PARAM);
+                String fromDate = url.queryParameter(GuardianApi.FROM_DATE_PARAM);
+                synchronized (mFromDates) {
+                    mFromDates.put(tag, fromDate);
+                }
+                String body = mBodies.get(fromDate != null ? tag + "|" + fromDate : tag);
+                return body != null ? new MockResponse().setBody(body)
+                        : new MockResponse().setResponseCode(404);
+            }
+        });
+        mServer.start();
+
+        mDefaultTransport = QueryUtils.getTransport();
+        mDefaultCircuitBreaker = QueryUtils.getCircuitBreaker();
+        mDefaultArticleCircuitBreaker = QueryUtils.getArticleCircuitBreaker();
+        QueryUtils.setTransport(new OkHttpTransport(1000, 1000));
+        QueryUtils.setResilience(new RetryPolicy(1, 50, 2000, new Random(1)),
+                new CircuitBreaker(3, 60000), new CircuitBreaker(3, 60000));
+        HttpCache.getInstance().clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        QueryUtils.setTransport(mDefaultTransport);
+        QueryUtils.setResilience(RetryPolicy.DEFAULT, mDefaultCircuitBreaker,
+                mDefaultArticleCircuitBreaker);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void fetch_asksEachSectionSinceItsOwnWatermark() throws Exception {
+        // The politics are busier than the science, which last published at noon
+        List<News> stored = Arrays.asList(news("p1", date(ONE_PM)), news("s1", date(NOON)));
+        Map<String, Long> watermarks = new HashMap<>();
+        watermarks.put("politics/politics", date(ONE_PM));
+        watermarks.put("science/science", date(NOON));
+
+        mBodies.put("politics/politics|" + ONE_PM, resultsBody(TWO_PM, "p2", ONE_PM, "p1"));
+        mBodies.put("science/science|" + NOON, resultsBody(NOON, "s1"));
+
+        List<News> news = DeltaSync.fetch(urls(), stored, watermarks, PAGE_SIZE, null);
+
+        assertEquals(ONE_PM, mFromDates.get("politics/politics"));
+        assertEquals(NOON, mFromDates.get("science/science"));
+        assertEquals(Arrays.asList("p2", "p1", "s1"), urls(news));
+        assertEquals(date(TWO_PM), (long) watermarks.get("politics/politics"));
+        assertEquals(date(NOON), (long) watermarks.get("science/science"));
+    }
+
+    @Test
+    public void fetch_fetchesThePagesAgainWhenASectionFillsOne() throws Exception {
+        List<News> stored = Arrays.asList(news("p1", date(NOON)), news("s1", date(NOON)));
+        Map<String, Long> watermarks = new HashMap<>();
+        watermarks.put("politics/politics", date(NOON));
+        watermarks.put("science/science", date(NOON));
+
+        // The politics fill a page since noon, so more may be hidden behind it
+        mBodies.put("politics/politics|" + NOON,
+                resultsBody(TWO_PM, "p4", TWO_PM, "p3", ONE_PM, "p2"));
+        mBodies.put("science/science|" + NOON, resultsBody(NOON, "s1"));
+        mBodies.put("politics/politics", resultsBody(TWO_PM, "p4", TWO_PM, "p3", ONE_PM, "p2"));
+        mBodies.put("science/science", resultsBody(NOON, "s1"));
+
+        List<News> news = DeltaSync.fetch(urls(), stored, watermarks, PAGE_SIZE, null);
+
+        assertNull(mFromDates.get("politics/politics"));
+        assertNull(mFromDates.get("science/science"));
+        assertEquals(Arrays.asList("p4", "p3", "p2", "s1"), urls(news));
+        assertEquals(date(TWO_PM), (long) watermarks.get("politics/politics"));
+    }
+
+    @Test
+    public void fetch_fetchesTheSectionsWithoutWatermarkWhole() throws Exception {
+        List<News> stored = Collections.singletonList(news("p1", date(NOON)));
+        Map<String, Long> watermarks = new HashMap<>();
+        watermarks.put("politics/politics", date(NOON));
+
+        // The science failed the last time, its whole page is asked for
+        mBodies.put("politics/politics|" + NOON, resultsBody(NOON, "p1"));
+        mBodies.put("science/science", resultsBody(TWO_PM, "s2", ONE_PM, "s1"));
+
+        List<News> news = DeltaSync.fetch(urls(), stored, watermarks, PAGE_SIZE, null);
+
+        assertNull(mFromDates.get("science/science"));
+        assertEquals(Arrays.asList("s2", "s1", "p1"), urls(news));
+        assertEquals(date(TWO_PM), (long) watermarks.get("science/science"));
+    }
+
+    private List<String> urls() {
+        return Arrays.asList(searchUrl("politics/politics"), searchUrl("science/science"));
+    }
+
+    private String searchUrl(String tag) {
+        return mServer.url("/search").newBuilder()
+                .addQueryParameter(GuardianApi.TAG_PARAM, tag)
+                .addQueryParameter(GuardianApi.USE_DATE_PARAM, GuardianApi.FIRST_PUBLICATION_DATE)
+                .build().toString();
+    }
+
+    /**
+     * Returns a search response of the given news, as date and URL pairs.
+     */
+    private static String resultsBody(String... datesAndUrls) {
+        StringBuilder body = new StringBuilder("{\"response\":{\"results\":[");
+        for (int i = 0; i < datesAndUrls.length; i += 2) {
+            body.append(i > 0 ? "," : "")
+                    .append("{\"sectionName\":\"Politics\",\"webUrl\":\"")
+                    .append(datesAndUrls[i + 1])
+                    .append("\",\"fields\":{\"headline\":\"Headline\",")
+                    .append("\"firstPublicationDate\":\"")
+                    .append(datesAndUrls[i])
+                    .append("\"}}");
+        }
+        return body.append("]}}").toString();
+    }
+
+    private static long date(String date) {
+        return QueryUtils.parseDate(date);
+    }
+
+    private static News news(String url, long date) {
+        return new News("Title of " + url, "World", url, null, date);
+    }
+
+    private static List<String> urls(List<News> news) {
+        List<String> urls = new ArrayList<>(news.size());
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls;
+    }
+}
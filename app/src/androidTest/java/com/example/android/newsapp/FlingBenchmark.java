@@ -0,0 +1,270 @@
+package com.example.android.newsapp;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.view.Choreographer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Flings the list of the main screen down and up over 500 rows, and logs the time between the
+ * frames drawn while it scrolls: its p50, p90 and p99, and the share of the frames that took
+ * longer than one refresh of a 60 Hz display. The rows have no thumbnail, so the frames measure
+ * the binding and the layout of the rows.
+ */
+@RunWith(AndroidJUnit4.class)
+public class FlingBenchmark {
+
+    private static final String TAG = "FlingBenchmark";
+
+    private static final int ROW_COUNT = 500;
+
+    // Flings down then up, this many times
+    private static final int ITERATIONS = 5;
+
+    // About the velocity of a quick fling, in pixels per second
+    private static final int FLING_VELOCITY = 8000;
+
+    // A frame taking longer than this missed a refresh of a 60 Hz display
+    private static final long JANK_NANOS = TimeUnit.MICROSECONDS.toNanos(16700);
+
+    // How long the screen may take to show its news, and a fling to settle
+    private static final long TIMEOUT_MILLIS = 20000;
+
+    private GuardianStubServer mStub;
+    private String mDefaultBaseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mStub = new GuardianStubServer();
+        mStub.start();
+
+        mDefaultBaseUrl = GuardianApi.getBaseUrl();
+        GuardianApi.setBaseUrl(mStub.getBaseUrl());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        GuardianApi.setBaseUrl(mDefaultBaseUrl);
+        mStub.shutdown();
+    }
+
+    @Test
+    public void flingFiveHundredRows() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Activity activity = launch(context);
+
+        final RecyclerView list = (RecyclerView) activity.findViewById(R.id.news_list_view);
+        final NewsListAdapter adapter = (NewsListAdapter) list.getAdapter();
+        final List<News> news = rows(new NewsFormatter(context));
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                adapter.submitList(news);
+            }
+        });
+        assertTrue("Rows not shown", waitFor(new Condition() {
+            @Override
+            public boolean isMet() {
+                return adapter.getItemCount() == ROW_COUNT;
+            }
+        }));
+
+        final FrameRecorder recorder = new FrameRecorder();
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                list.addOnScrollListener(recorder);
+                Choreographer.getInstance().postFrameCallback(recorder);
+            }
+        });
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            fling(instrumentation, list, FLING_VELOCITY);
+            fling(instrumentation, list, -FLING_VELOCITY);
+        }
+
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                recorder.stop();
+                list.removeOnScrollListener(recorder);
+            }
+        });
+
+        long[] frames = recorder.getFrameNanos();
+        assertTrue("No frame drawn while scrolling", frames.length > 0);
+        Log.i(TAG, String.format("%d frames: p50 %.1f ms p90 %.1f ms p99 %.1f ms, "
+                        + "%.1f%% over %.1f ms", frames.length, percentileMillis(frames, 50),
+                percentileMillis(frames, 90), percentileMillis(frames, 99),
+                100.0 * countOver(frames, JANK_NANOS) / frames.length, JANK_NANOS / 1e6));
+
+        activity.finish();
+        instrumentation.waitForIdleSync();
+    }
+
+    /**
+     * Flings the list, then waits for it to settle.
+     */
+    private static void fling(Instrumentation instrumentation, final RecyclerView list,
+                              final int velocity) {
+        instrumentation.runOnMainSync(new Runnable() {
+            @Override
+            public void run() {
+                list.fling(0, velocity);
+            }
+        });
+        assertTrue("Fling not settled", waitFor(new Condition() {
+            @Override
+            public boolean isMet() {
+                return list.getScrollState() == RecyclerView.SCROLL_STATE_IDLE;
+            }
+        }));
+    }
+
+    /**
+     * Starts the main screen in a new task and waits for its loaded news.
+     */
+    private static Activity launch(Context context) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        final Histogram fullDisplay = Metrics.getInstance().histogram(Metrics.FULL_DISPLAY);
+        final long count = fullDisplay.getCount();
+
+        Intent intent = new Intent(Intent.ACTION_MAIN)
+                .setClass(context, MainActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        Activity activity = instrumentation.startActivitySync(intent);
+
+        assertTrue("No news shown", waitFor(new Condition() {
+            @Override
+            public boolean isMet() {
+                return fullDisplay.getCount() > count;
+            }
+        }));
+        instrumentation.waitForIdleSync();
+        return activity;
+    }
+
+    /**
+     * Formatted rows of every length of title, with and without a byline.
+     */
+    private static List<News> rows(NewsFormatter formatter) {
+        long now = System.currentTimeMillis();
+        List<News> news = new ArrayList<>(ROW_COUNT);
+        for (int i = 0; i < ROW_COUNT; i++) {
+            StringBuilder title = new StringBuilder("Headline ").append(i);
+            for (int j = 0; j < i % 4; j++) {
+                title.append(", with a few more words to wrap");
+            }
+            String author = i % 3 == 0 ? null : "Author " + i % 20;
+            news.add(formatter.format(new News(title.toString(), "Section " + i % 8,
+                    "https://www.theguardian.com/fling/" + i, author,
+                    now - TimeUnit.MINUTES.toMillis(i))));
+        }
+        return news;
+    }
+
+    private static double percentileMillis(long[] sortedNanos, double percentile) {
+        int index = (int) Math.ceil(percentile / 100 * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, index)] / 1e6;
+    }
+
+    private static int countOver(long[] nanos, long threshold) {
+        int count = 0;
+        for (long frame : nanos) {
+            if (frame > threshold) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean waitFor(Condition condition) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MILLIS;
+        while (!condition.isMet()) {
+            if (SystemClock.uptimeMillis() > deadline) {
+                return false;
+            }
+            SystemClock.sleep(20);
+            instrumentation.waitForIdleSync();
+        }
+        return true;
+    }
+
+    private interface Condition {
+        boolean isMet();
+    }
+
+    /**
+     * Records the time between the frames drawn while the list scrolls. Used on the main
+     * thread.
+     */
+    private static final class FrameRecorder extends RecyclerView.OnScrollListener
+            implements Choreographer.FrameCallback {
+
+        private final List<Long> mFrameNanos = new ArrayList<>();
+
+        private boolean mScrolling;
+        private boolean mStopped;
+
+        // The time of the last frame drawn while scrolling, 0 when the previous one was not
+        private long mLastFrameNanos;
+
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            mScrolling = newState != RecyclerView.SCROLL_STATE_IDLE;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mStopped) {
+                return;
+            }
+
+            if (mScrolling) {
+                if (mLastFrameNanos != 0) {
+                    mFrameNanos.add(frameTimeNanos - mLastFrameNanos);
+                }
+                mLastFrameNanos = frameTimeNanos;
+            } else {
+                mLastFrameNanos = 0;
+            }
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+
+        void stop() {
+            mStopped = true;
+        }
+
+        /**
+         * Returns the times recorded, sorted.
+         */
+        long[] getFrameNanos() {
+            long[] frameNanos = new long[mFrameNanos.size()];
+            for (int i = 0; i < frameNanos.length; i++) {
+                frameNanos[i] = mFrameNanos.get(i);
+            }
+            Arrays.sort(frameNanos);
+            return frameNanos;
+        }
+    }
+}
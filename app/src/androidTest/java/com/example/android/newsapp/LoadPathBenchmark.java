@@ -0,0 +1,127 @@
+package com.example.android.newsapp;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the whole load path, from the request to the rendered list, against the local
+ * Guardian stub for several payload sizes and latencies. Every launch starts without a
+ * snapshot or cached news, so the news come from the network, and the p50 and p99 of the full
+ * display, of the loader and of the row binding are logged along with the bytes allocated.
+ */
+@RunWith(AndroidJUnit4.class)
+public class LoadPathBenchmark {
+
+    private static final String TAG = "LoadPathBenchmark";
+
+    private static final int ITERATIONS = 10;
+
+    // How long a launch may take to show the loaded news
+    private static final long TIMEOUT_MILLIS = 20000;
+
+    private GuardianStubServer mStub;
+    private String mDefaultBaseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mStub = new GuardianStubServer();
+        mStub.start();
+
+        mDefaultBaseUrl = GuardianApi.getBaseUrl();
+        GuardianApi.setBaseUrl(mStub.getBaseUrl());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        GuardianApi.setBaseUrl(mDefaultBaseUrl);
+        mStub.shutdown();
+    }
+
+    @Test
+    public void compareProfiles() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        Metrics metrics = Metrics.getInstance();
+
+        for (int results : new int[]{10, 50}) {
+            for (long latency : new long[]{0, 200}) {
+                mStub.setResultCount(results);
+                mStub.setLatency(latency);
+
+                // Warms up the code and the connection before measuring
+                launch(context);
+                metrics.reset();
+
+                long allocated = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    long bytes = allocatedBytes();
+                    launch(context);
+                    allocated += allocatedBytes() - bytes;
+                }
+
+                Histogram fullDisplay = metrics.histogram(Metrics.FULL_DISPLAY);
+                Histogram load = metrics.histogram(Metrics.LOAD);
+                Histogram bind = metrics.histogram(Metrics.BIND);
+                Log.i(TAG, String.format("%d results, %d ms latency: full display p50 %.1f ms "
+                                + "p99 %.1f ms, load p50 %.1f ms p99 %.1f ms, bind p50 %.2f ms "
+                                + "p99 %.2f ms, %d KB allocated", results, latency,
+                        fullDisplay.getPercentileMillis(50), fullDisplay.getPercentileMillis(99),
+                        load.getPercentileMillis(50), load.getPercentileMillis(99),
+                        bind.getPercentileMillis(50), bind.getPercentileMillis(99),
+                        allocated / ITERATIONS / 1024));
+            }
+        }
+    }
+
+    /**
+     * Starts the main screen with nothing stored, waits for its news, then finishes it.
+     */
+    private static void launch(Context context) {
+        FeedSnapshot.clear(context);
+        new NewsCache(context).clear();
+        HttpCache.getInstance().clear();
+
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        Histogram fullDisplay = Metrics.getInstance().histogram(Metrics.FULL_DISPLAY);
+        long count = fullDisplay.getCount();
+
+        Intent intent = new Intent(Intent.ACTION_MAIN)
+                .setClass(context, MainActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        Activity activity = instrumentation.startActivitySync(intent);
+
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MILLIS;
+        while (fullDisplay.getCount() <= count && SystemClock.uptimeMillis() < deadline) {
+            SystemClock.sleep(10);
+        }
+        assertTrue("No news shown", fullDisplay.getCount() > count);
+
+        activity.finish();
+        instrumentation.waitForIdleSync();
+    }
+
+    /**
+     * Bytes allocated by the whole app, or 0 before Marshmallow.
+     */
+    private static long allocatedBytes() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return 0;
+        }
+        String bytes = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        return bytes != null ? Long.parseLong(bytes) : 0;
+    }
+}
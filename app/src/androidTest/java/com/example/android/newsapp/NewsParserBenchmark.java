@@ -0,0 +1,106 @@
+package com.example.android.newsapp;
+
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares the parse time and the heap growth of the JSONObject path against the streaming
+ * path, for responses with 10, 200 and 2000 results.
+ */
+@RunWith(AndroidJUnit4.class)
+public class NewsParserBenchmark {
+
+    private static final String TAG = "NewsParserBenchmark";
+
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void compareParsers() throws Exception {
+        for (int results : new int[]{10, 200, 2000}) {
+            byte[] payload = buildPayload(results);
+
+            // Warm up both paths before measuring
+            parseWithDom(payload);
+            parseWithStream(payload);
+
+            long domTime = 0;
+            long domHeap = 0;
+            long streamTime = 0;
+            long streamHeap = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long heap = usedHeap();
+                long start = System.nanoTime();
+                List<News> news = parseWithDom(payload);
+                domTime += System.nanoTime() - start;
+                domHeap += usedHeap() - heap;
+                assertEquals(results, news.size());
+
+                heap = usedHeap();
+                start = System.nanoTime();
+                news = parseWithStream(payload);
+                streamTime += System.nanoTime() - start;
+                streamHeap += usedHeap() - heap;
+                assertEquals(results, news.size());
+            }
+
+            Log.i(TAG, String.format("%d results: DOM %d us / %d KB, stream %d us / %d KB",
+                    results, domTime / ITERATIONS / 1000, domHeap / ITERATIONS / 1024,
+                    streamTime / ITERATIONS / 1000, streamHeap / ITERATIONS / 1024));
+        }
+    }
+
+    /**
+     * The DOM path holds the bytes, the String and the JSONObject tree at the same time.
+     */
+    private static List<News> parseWithDom(byte[] payload) throws IOException {
+        String json = QueryUtils.readFromStream(new ByteArrayInputStream(payload),
+                payload.length, QueryUtils.DEFAULT_CHARSET);
+        return QueryUtils.extractNewsFromJson(json);
+    }
+
+    private static List<News> parseWithStream(byte[] payload) throws IOException {
+        return QueryUtils.extractNewsFromStream(new ByteArrayInputStream(payload),
+                QueryUtils.DEFAULT_CHARSET);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        runtime.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    static byte[] buildPayload(int results) throws IOException {
+        StringBuilder json = new StringBuilder("{\"response\":{\"status\":\"ok\",\"total\":")
+                .append(results).append(",\"results\":[");
+        for (int i = 0; i < results; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"id\":\"politics/2017/aug/").append(i).append("/article\",")
+                    .append("\"type\":\"article\",\"sectionId\":\"politics\",")
+                    .append("\"sectionName\":\"Politics\",")
+                    .append("\"webPublicationDate\":\"2017-08-20T10:00:00Z\",")
+                    .append("\"webTitle\":\"Article number ").append(i).append("\",")
+                    .append("\"webUrl\":\"https://www.theguardian.com/politics/2017/aug/")
+                    .append(i).append("/article\",")
+                    .append("\"apiUrl\":\"https://content.guardianapis.com/politics/2017/aug/")
+                    .append(i).append("/article\",")
+                    .append("\"fields\":{\"headline\":\"Article number ").append(i)
+                    .append("\",\"byline\":\"Guardian staff\",")
+                    .append("\"firstPublicationDate\":\"2017-08-20T10:00:00Z\"},")
+                    .append("\"isHosted\":false}");
+        }
+        json.append("]}}");
+
+        return json.toString().getBytes("UTF-8");
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the read path of a refresh, {@link QueryUtils#fetchNewsData} from the request to
+ * the parsed news, against the local Guardian stub for several payload sizes and network
+ * profiles. The p50 and p99 latencies and the bytes allocated of each are written to
+ * <code>read-path-benchmark.csv</code> in the files directory of the app.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ReadPathBenchmark {
+
+    private static final String TAG = "ReadPathBenchmark";
+
+    private static final String RESULTS_FILE = "read-path-benchmark.csv";
+
+    private static final int ITERATIONS = 10;
+
+    private GuardianStubServer mStub;
+    private String mDefaultBaseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mStub = new GuardianStubServer();
+        mStub.start();
+
+        mDefaultBaseUrl = GuardianApi.getBaseUrl();
+        GuardianApi.setBaseUrl(mStub.getBaseUrl());
+        HttpCache.getInstance().clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        GuardianApi.setBaseUrl(mDefaultBaseUrl);
+        HttpCache.getInstance().clear();
+        mStub.shutdown();
+    }
+
+    @Test
+    public void stub_repeatsTheRecordedResultsUnderNewUrls() throws Exception {
+        mStub.setResultCount(12);
+
+        Set<String> urls = new HashSet<>();
+        for (int page = 1; page <= 2; page++) {
+            List<News> news = fetch(searchUrl(page));
+            assertEquals(12, news.size());
+            for (News item : news) {
+                urls.add(item.getUrl());
+            }
+        }
+
+        // No news appears twice, neither in a page nor across them
+        assertEquals(24, urls.size());
+    }
+
+    @Test
+    public void stub_delaysTheResponses() throws Exception {
+        mStub.setLatency(200);
+
+        long start = System.nanoTime();
+        fetch(searchUrl(1));
+
+        assertTrue(System.nanoTime() - start >= 200 * 1000000L);
+        assertEquals(1, mStub.getRequestCount());
+    }
+
+    @Test
+    public void compareProfiles() throws Exception {
+        // Latency in milliseconds and bandwidth in bytes per second, 0 for unlimited
+        long[][] profiles = {{0, 0}, {100, 0}, {100, 200 * 1024}};
+        String[] names = {"local", "wifi", "3g"};
+
+        StringBuilder csv = new StringBuilder("results,profile,p50_ms,p99_ms,allocated_kb\n");
+        for (int results : new int[]{10, 50, 200}) {
+            mStub.setResultCount(results);
+            for (int p = 0; p < profiles.length; p++) {
+                mStub.setLatency(profiles[p][0]);
+                mStub.setBandwidth(profiles[p][1]);
+
+                // Warms up the connection and the code before measuring
+                fetch(searchUrl(1));
+
+                Histogram latency = new Histogram();
+                long allocated = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    String url = searchUrl(1 + i % 3);
+                    long bytes = allocatedBytes();
+                    long start = System.nanoTime();
+                    List<News> news = fetch(url);
+                    latency.record(System.nanoTime() - start);
+                    allocated += allocatedBytes() - bytes;
+                    assertEquals(results, news.size());
+                }
+
+                csv.append(String.format(Locale.US, "%d,%s,%.1f,%.1f,%d\n", results, names[p],
+                        latency.getPercentileMillis(50), latency.getPercentileMillis(99),
+                        allocated / ITERATIONS / 1024));
+            }
+        }
+
+        File file = write(InstrumentationRegistry.getTargetContext(), csv.toString());
+        Log.i(TAG, "Results written to " + file.getAbsolutePath());
+    }
+
+    private static String searchUrl(int page) {
+        return GuardianApi.searchUrl() + "?" + GuardianApi.PAGE_PARAM + "=" + page;
+    }
+
+    /**
+     * Fetches the news of the given URL the way a refresh does, without the cached response.
+     */
+    private static List<News> fetch(String url) throws NewsFetchException {
+        HttpCache.getInstance().clear();
+        return QueryUtils.fetchNewsData(url);
+    }
+
+    /**
+     * Writes the results next to the exported metrics, replacing those of the previous run.
+     */
+    private static File write(Context context, String csv) throws Exception {
+        File directory = context.getExternalFilesDir(null);
+        if (directory == null) {
+            // No external storage mounted
+            directory = context.getFilesDir();
+        }
+
+        File file = new File(directory, RESULTS_FILE);
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(csv);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+
+    /**
+     * Bytes allocated by the whole app, or 0 before Marshmallow.
+     */
+    private static long allocatedBytes() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.M) {
+            return 0;
+        }
+        String bytes = Debug.getRuntimeStat("art.gc.bytes-allocated");
+        return bytes != null ? Long.parseLong(bytes) : 0;
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.android.newsapp;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs the foreground refreshes on a handler thread, with intervals short enough for a test,
+ * and checks how the interval follows the new news each refresh brings.
+ */
+@RunWith(AndroidJUnit4.class)
+public class RefreshSchedulerTest {
+
+    private static final long INTERVAL_MILLIS = 50;
+    private static final long REFRESH_TIMEOUT_MILLIS = 100;
+
+    // The bounds of the adapted interval, and the new news of a busy refresh
+    private static final long MIN_INTERVAL_MILLIS = 50;
+    private static final long MAX_INTERVAL_MILLIS = 400;
+    private static final int BUSY_THRESHOLD = 10;
+
+    private HandlerThread mThread;
+    private Handler mHandler;
+
+    @Before
+    public void setUp() {
+        mThread = new HandlerThread("refresh-test");
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+    }
+
+    @After
+    public void tearDown() {
+        mThread.quit();
+    }
+
+    @Test
+    public void refreshNeverReported_isGivenUpAndTheNextOneStillComes() throws Exception {
+        // Like a failed fetch, which leaves the news as they were and never reports
+        final CountDownLatch refreshes = new CountDownLatch(2);
+        final RefreshScheduler scheduler = newScheduler(new RefreshScheduler.Callback() {
+            @Override
+            public void onRefresh() {
+                refreshes.countDown();
+            }
+        });
+        start(scheduler);
+
+        assertTrue(refreshes.await(2, TimeUnit.SECONDS));
+        assertEquals(INTERVAL_MILLIS, scheduler.getInterval());
+        assertEquals(0, scheduler.getRefreshes());
+    }
+
+    @Test
+    public void reportedRefresh_isNotTimedOut() throws Exception {
+        final CountDownLatch refreshes = new CountDownLatch(1);
+        final RefreshScheduler[] scheduler = new RefreshScheduler[1];
+        scheduler[0] = newScheduler(new RefreshScheduler.Callback() {
+            @Override
+            public void onRefresh() {
+                // Stops once reported, so only the timeout could start another refresh
+                scheduler[0].onRefreshed(0);
+                scheduler[0].stop();
+                refreshes.countDown();
+            }
+        });
+        start(scheduler[0]);
+
+        assertTrue(refreshes.await(2, TimeUnit.SECONDS));
+        Thread.sleep(2 * REFRESH_TIMEOUT_MILLIS);
+        assertFalse(scheduler[0].isRefreshing());
+        assertEquals(1, scheduler[0].getRefreshes());
+    }
+
+    @Test
+    public void unchangedResults_doubleTheIntervalUpToTheCeiling() throws Exception {
+        long[] intervals = refreshAndReport(100, 0, 0, 0);
+
+        assertEquals(200, intervals[0]);
+        assertEquals(400, intervals[1]);
+        assertEquals(MAX_INTERVAL_MILLIS, intervals[2]);
+    }
+
+    @Test
+    public void changedResults_halveTheIntervalWhenBusyAndKeepItOtherwise() throws Exception {
+        long[] intervals = refreshAndReport(200, BUSY_THRESHOLD, 3, 2 * BUSY_THRESHOLD, 1);
+
+        assertEquals(100, intervals[0]);
+        // A few new news are not enough to refresh more often
+        assertEquals(100, intervals[1]);
+        assertEquals(MIN_INTERVAL_MILLIS, intervals[2]);
+        assertEquals(MIN_INTERVAL_MILLIS, intervals[3]);
+    }
+
+    /**
+     * Starts a scheduler whose refreshes report the given counts of new news in turn, and
+     * returns the interval after each report.
+     */
+    private long[] refreshAndReport(long initialIntervalMillis, final int... newItems)
+            throws Exception {
+        final long[] intervals = new long[newItems.length];
+        final CountDownLatch reported = new CountDownLatch(newItems.length);
+        final RefreshScheduler[] scheduler = new RefreshScheduler[1];
+        scheduler[0] = new RefreshScheduler(mHandler, new RefreshScheduler.Callback() {
+            @Override
+            public void onRefresh() {
+                int refresh = scheduler[0].getRefreshes();
+                scheduler[0].onRefreshed(newItems[refresh]);
+                intervals[refresh] = scheduler[0].getInterval();
+                if (refresh == newItems.length - 1) {
+                    scheduler[0].stop();
+                }
+                reported.countDown();
+            }
+        }, initialIntervalMillis, BUSY_THRESHOLD, MIN_INTERVAL_MILLIS, MAX_INTERVAL_MILLIS,
+                REFRESH_TIMEOUT_MILLIS);
+        start(scheduler[0]);
+
+        assertTrue(reported.await(5, TimeUnit.SECONDS));
+        return intervals;
+    }
+
+    private RefreshScheduler newScheduler(RefreshScheduler.Callback callback) {
+        return new RefreshScheduler(mHandler, callback, INTERVAL_MILLIS, 10, INTERVAL_MILLIS,
+                INTERVAL_MILLIS, REFRESH_TIMEOUT_MILLIS);
+    }
+
+    private void start(final RefreshScheduler scheduler) {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                scheduler.start();
+            }
+        });
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.android.newsapp;
+
+import android.support.test.runner.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.SocketPolicy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Fetches the news from a local server injecting failures and latency, and checks what is
+ * retried, how long it waits and when the circuit breaker stops the requests. Runs on a device,
+ * where the responses are parsed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ResilienceTest {
+
+    private static final String BODY = "{\"response\":{\"results\":[]}}";
+
+    private MockWebServer mServer;
+    private NewsTransport mDefaultTransport;
+    private CircuitBreaker mDefaultCircuitBreaker;
+    private CircuitBreaker mDefaultArticleCircuitBreaker;
+    private String mDefaultBaseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        mServer.start();
+
+        mDefaultTransport = QueryUtils.getTransport();
+        mDefaultCircuitBreaker = QueryUtils.getCircuitBreaker();
+        mDefaultArticleCircuitBreaker = QueryUtils.getArticleCircuitBreaker();
+        mDefaultBaseUrl = GuardianApi.getBaseUrl();
+        QueryUtils.setTransport(new OkHttpTransport(1000, 300));
+        QueryUtils.setResilience(new RetryPolicy(3, 50, 2000, new Random(1)),
+                new CircuitBreaker(3, 60000), new CircuitBreaker(3, 60000));
+        HttpCache.getInstance().clear();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        QueryUtils.setTransport(mDefaultTransport);
+        QueryUtils.setResilience(RetryPolicy.DEFAULT, mDefaultCircuitBreaker,
+                mDefaultArticleCircuitBreaker);
+        GuardianApi.setBaseUrl(mDefaultBaseUrl);
+        mServer.shutdown();
+    }
+
+    @Test
+    public void serverErrors_areRetriedUntilSuccess() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setResponseCode(503));
+        mServer.enqueue(new MockResponse().setBody(BODY));
+
+        QueryUtils.fetchNewsData(url("/retried"));
+
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void rateLimit_waitsForRetryAfter() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(429).setHeader("Retry-After", "1"));
+        mServer.enqueue(new MockResponse().setBody(BODY));
+
+        long start = System.nanoTime();
+        QueryUtils.fetchNewsData(url("/rate-limited"));
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(2, mServer.getRequestCount());
+        assertTrue("Retried after " + elapsedMillis + " ms", elapsedMillis >= 1000);
+    }
+
+    @Test
+    public void clientError_isNotRetried() throws Exception {
+        mServer.enqueue(new MockResponse().setResponseCode(404));
+
+        assertFailure(NewsFetchException.Reason.CLIENT_ERROR, url("/missing"));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void noResponse_timesOutAndIsRetried() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setSocketPolicy(SocketPolicy.NO_RESPONSE));
+        }
+
+        assertFailure(NewsFetchException.Reason.TIMEOUT, url("/silent"));
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void slowResponse_withinTheTimeout_succeeds() throws Exception {
+        mServer.enqueue(new MockResponse().setBody(BODY)
+                .setHeadersDelay(100, TimeUnit.MILLISECONDS));
+
+        QueryUtils.fetchNewsData(url("/slow"));
+
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void malformedBody_isAParseFailureAndNotRetried() throws Exception {
+        mServer.enqueue(new MockResponse().setBody("{\"response\":[]}"));
+
+        assertFailure(NewsFetchException.Reason.PARSE, url("/malformed"));
+        assertEquals(1, mServer.getRequestCount());
+    }
+
+    @Test
+    public void bodyCutOff_isNotCached() throws Exception {
+        QueryUtils.setResilience(new RetryPolicy(1, 50, 2000, new Random(1)),
+                new CircuitBreaker(3, 60000), new CircuitBreaker(3, 60000));
+        String body = resultsBody(50);
+        mServer.enqueue(new MockResponse().setBody(body).setHeader("ETag", "\"v1\"")
+                .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        mServer.enqueue(new MockResponse().setBody(body).setHeader("ETag", "\"v1\""));
+
+        assertFailure(NewsFetchException.Reason.NETWORK, url("/cut-off"));
+        mServer.takeRequest();
+
+        // Nothing to revalidate, the whole body is asked for again
+        assertEquals(50, QueryUtils.fetchNewsData(url("/cut-off")).size());
+        assertNull(mServer.takeRequest().getHeader("If-None-Match"));
+    }
+
+    @Test
+    public void disconnectMidBody_isANetworkFailureAndRetried() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setBody(resultsBody(50))
+                    .setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY));
+        }
+
+        assertFailure(NewsFetchException.Reason.NETWORK, url("/dropped"));
+        assertEquals(3, mServer.getRequestCount());
+
+        // The failed reads count against the API like any other network failure
+        assertTrue(QueryUtils.getCircuitBreaker().isOpen());
+    }
+
+    @Test
+    public void bodyStallingMidway_timesOutAndIsRetried() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setBody(resultsBody(50))
+                    .throttleBody(256, 1, TimeUnit.SECONDS));
+        }
+
+        assertFailure(NewsFetchException.Reason.TIMEOUT, url("/stalled"));
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    @Test
+    public void articleFailures_doNotStopTheNewsRequests() throws Exception {
+        GuardianApi.setBaseUrl(mServer.url("/api").toString());
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(500));
+        }
+        mServer.enqueue(new MockResponse().setBody(BODY));
+
+        for (int i = 0; i < 3; i++) {
+            try {
+                QueryUtils.fetchArticleBody("https://www.theguardian.com/world/" + i);
+                fail("Expected " + NewsFetchException.Reason.SERVER_ERROR);
+            } catch (NewsFetchException e) {
+                assertEquals(NewsFetchException.Reason.SERVER_ERROR, e.getReason());
+            }
+        }
+        assertTrue(QueryUtils.getArticleCircuitBreaker().isOpen());
+
+        QueryUtils.fetchNewsData(url("/search"));
+        assertEquals(4, mServer.getRequestCount());
+    }
+
+    @Test
+    public void repeatedFailures_openTheCircuit() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            mServer.enqueue(new MockResponse().setResponseCode(500));
+        }
+
+        assertFailure(NewsFetchException.Reason.SERVER_ERROR, url("/down"));
+        assertEquals(3, mServer.getRequestCount());
+
+        // Not even sent while the circuit is open
+        assertFailure(NewsFetchException.Reason.CIRCUIT_OPEN, url("/down"));
+        assertEquals(3, mServer.getRequestCount());
+    }
+
+    /**
+     * Returns a search response with the given number of results.
+     */
+    private static String resultsBody(int results) {
+        StringBuilder body = new StringBuilder("{\"response\":{\"results\":[");
+        for (int i = 0; i < results; i++) {
+            body.append(i > 0 ? "," : "")
+                    .append("{\"sectionName\":\"World news\",\"webUrl\":\"https://example.com/")
+                    .append(i)
+                    .append("\",\"fields\":{\"headline\":\"Headline ")
+                    .append(i)
+                    .append("\"}}");
+        }
+        return body.append("]}}").toString();
+    }
+
+    private String url(String path) {
+        return mServer.url(path).toString();
+    }
+
+    private static void assertFailure(NewsFetchException.Reason reason, String url) {
+        try {
+            QueryUtils.fetchNewsData(url);
+            fail("Expected " + reason);
+        } catch (NewsFetchException e) {
+            assertEquals(reason, e.getReason());
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.android.newsapp;
+
+import android.app.Activity;
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Launches the main screen repeatedly, with and without the feed snapshot, and logs the time
+ * to the initial display and to the full display. The first launch of the run also loads the
+ * classes of the app, the closest to a cold start a test in the same process gets; the time of
+ * a real cold start comes from <code>adb shell am start -W</code> after a force stop, and
+ * shows as "Displayed" and "Fully drawn" in the logcat. The news come from the local Guardian
+ * stub, so the network does not weigh on the numbers.
+ */
+@RunWith(AndroidJUnit4.class)
+public class StartupBenchmark {
+
+    private static final String TAG = "StartupBenchmark";
+
+    private static final int ITERATIONS = 10;
+
+    // How long a launch may take to show the loaded news
+    private static final long TIMEOUT_MILLIS = 20000;
+
+    private GuardianStubServer mStub;
+    private String mDefaultBaseUrl;
+
+    @Before
+    public void setUp() throws Exception {
+        mStub = new GuardianStubServer();
+        mStub.start();
+
+        mDefaultBaseUrl = GuardianApi.getBaseUrl();
+        GuardianApi.setBaseUrl(mStub.getBaseUrl());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        GuardianApi.setBaseUrl(mDefaultBaseUrl);
+        mStub.shutdown();
+    }
+
+    @Test
+    public void compareStartups() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        Histogram initialDisplay = Metrics.getInstance().histogram(Metrics.INITIAL_DISPLAY);
+        Histogram fullDisplay = Metrics.getInstance().histogram(Metrics.FULL_DISPLAY);
+
+        // Also leaves a snapshot and the cached news for the next launches
+        launch(context, initialDisplay, fullDisplay);
+        Log.i(TAG, "First launch: initial " + initialDisplay.getMaxMillis() + " ms, full "
+                + fullDisplay.getMaxMillis() + " ms");
+
+        for (boolean snapshot : new boolean[]{true, false}) {
+            initialDisplay.reset();
+            fullDisplay.reset();
+
+            for (int i = 0; i < ITERATIONS; i++) {
+                if (!snapshot) {
+                    FeedSnapshot.clear(context);
+                }
+                launch(context, initialDisplay, fullDisplay);
+            }
+
+            Log.i(TAG, String.format("%s snapshot: initial p50 %.1f ms p90 %.1f ms, "
+                            + "full p50 %.1f ms p90 %.1f ms", snapshot ? "With" : "Without",
+                    initialDisplay.getPercentileMillis(50), initialDisplay.getPercentileMillis(90),
+                    fullDisplay.getPercentileMillis(50), fullDisplay.getPercentileMillis(90)));
+        }
+    }
+
+    /**
+     * Starts the main screen in a new task and waits for its loaded news, then finishes it.
+     */
+    private static void launch(Context context, Histogram initialDisplay,
+                               Histogram fullDisplay) {
+        Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+        long initialCount = initialDisplay.getCount();
+        long fullCount = fullDisplay.getCount();
+
+        Intent intent = new Intent(Intent.ACTION_MAIN)
+                .setClass(context, MainActivity.class)
+                .addFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
+        Activity activity = instrumentation.startActivitySync(intent);
+
+        assertTrue("No first frame", waitFor(initialDisplay, initialCount + 1));
+        assertTrue("No news shown", waitFor(fullDisplay, fullCount + 1));
+
+        activity.finish();
+        instrumentation.waitForIdleSync();
+    }
+
+    private static boolean waitFor(Histogram histogram, long count) {
+        long deadline = SystemClock.uptimeMillis() + TIMEOUT_MILLIS;
+        while (histogram.getCount() < count) {
+            if (SystemClock.uptimeMillis() > deadline) {
+                return false;
+            }
+            SystemClock.sleep(20);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.os.Debug;
+import android.support.test.InstrumentationRegistry;
+import android.support.test.runner.AndroidJUnit4;
+import android.util.Log;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Decodes the thumbnails of 500 rows from a photo of the size the API returns, and checks that
+ * the memory they take stays under the ceiling of the memory cache.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ThumbnailMemoryTest {
+
+    private static final String TAG = "ThumbnailMemoryTest";
+
+    private static final int ROW_COUNT = 500;
+
+    // The size of the photos of the API
+    private static final int IMAGE_WIDTH = 1000;
+    private static final int IMAGE_HEIGHT = 600;
+
+    // Slack for the allocations of the test itself
+    private static final long SLACK_BYTES = 4 * 1024 * 1024;
+
+    @Test
+    public void fiveHundredRows_stayUnderTheCeiling() throws Exception {
+        Context context = InstrumentationRegistry.getTargetContext();
+        int width = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_width);
+        int height = context.getResources().getDimensionPixelSize(R.dimen.thumbnail_height);
+        File file = writePhoto(context);
+
+        ThumbnailLoader loader = ThumbnailLoader.getInstance(context);
+        long memory = usedMemory();
+
+        for (int i = 0; i < ROW_COUNT; i++) {
+            Bitmap bitmap = ThumbnailLoader.decodeSampled(file, width, height);
+
+            // Never more than twice the size of the view on each side, two bytes per pixel
+            assertTrue(bitmap.getByteCount() <= 2 * width * 2 * height * 2);
+            loader.putBitmap(ThumbnailLoader.keyFor("row-" + i, width, height), bitmap);
+        }
+
+        long growth = usedMemory() - memory;
+        long ceiling = loader.getMemoryCacheMaxSize();
+        Log.i(TAG, String.format("%d rows: %d KB used, ceiling %d KB, %d KB at full size",
+                ROW_COUNT, growth / 1024, ceiling / 1024,
+                (long) ROW_COUNT * IMAGE_WIDTH * IMAGE_HEIGHT * 4 / 1024));
+
+        assertTrue(loader.getMemoryCacheSize() <= ceiling);
+        assertTrue(growth <= ceiling + SLACK_BYTES);
+
+        file.delete();
+    }
+
+    private static File writePhoto(Context context) throws Exception {
+        Bitmap photo = Bitmap.createBitmap(IMAGE_WIDTH, IMAGE_HEIGHT, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(photo);
+        canvas.drawColor(Color.DKGRAY);
+        Paint paint = new Paint();
+        paint.setColor(Color.YELLOW);
+        canvas.drawCircle(IMAGE_WIDTH / 2, IMAGE_HEIGHT / 2, IMAGE_HEIGHT / 3, paint);
+
+        File file = new File(context.getCacheDir(), "thumbnail-test.jpg");
+        OutputStream outputStream = new FileOutputStream(file);
+        try {
+            photo.compress(Bitmap.CompressFormat.JPEG, 85, outputStream);
+        } finally {
+            outputStream.close();
+        }
+        photo.recycle();
+
+        return file;
+    }
+
+    /**
+     * Returns the memory used by the Java heap and the native heap, where the pixels of the
+     * bitmaps live from Oreo on.
+     */
+    private static long usedMemory() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory() + Debug.getNativeHeapAllocatedSize();
+    }
+}
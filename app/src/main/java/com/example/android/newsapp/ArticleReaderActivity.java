@@ -0,0 +1,156 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.text.Html;
+import android.text.Spanned;
+import android.text.method.LinkMovementMethod;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.view.View;
+import android.widget.ProgressBar;
+import android.widget.ScrollView;
+import android.widget.TextView;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.regex.Pattern;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+
+/**
+ * Shows the body of an article. The stored body is rendered right away, even offline, and an
+ * article that was not prefetched is downloaded and stored first.
+ */
+public class ArticleReaderActivity extends AppCompatActivity {
+
+    private static final String TAG = "ArticleReaderActivity";
+
+    static final String EXTRA_URL = "url";
+    static final String EXTRA_TITLE = "title";
+
+    // The figures and embeds would need the network, so they are left out of the text
+    private static final Pattern NETWORK_ELEMENTS = Pattern.compile(
+            "<figure[^>]*>.*?</figure>|<img[^>]*>|<iframe[^>]*>.*?</iframe>",
+            Pattern.DOTALL | Pattern.CASE_INSENSITIVE);
+
+    private String mUrl;
+
+    @BindView(R.id.article_scroll_view)
+    ScrollView mScrollView;
+
+    @BindView(R.id.article_title)
+    TextView mTitle;
+
+    @BindView(R.id.article_body)
+    TextView mBody;
+
+    @BindView(R.id.article_loading_indicator)
+    ProgressBar mLoadingIndicator;
+
+    @BindView(R.id.article_empty_view)
+    TextView mEmptyView;
+
+    static Intent newIntent(Context context, News news) {
+        Intent intent = new Intent(context, ArticleReaderActivity.class);
+        intent.putExtra(EXTRA_URL, news.getUrl());
+        intent.putExtra(EXTRA_TITLE, news.getTitle());
+        return intent;
+    }
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_article_reader);
+
+        ButterKnife.bind(this);
+
+        mUrl = getIntent().getStringExtra(EXTRA_URL);
+        mTitle.setText(getIntent().getStringExtra(EXTRA_TITLE));
+        mBody.setMovementMethod(LinkMovementMethod.getInstance());
+
+        new BodyTask(this).execute(mUrl);
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.article_reader, menu);
+
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        if (item.getItemId() == R.id.action_open_in_browser) {
+            openInBrowser();
+            return true;
+        }
+
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void openInBrowser() {
+        Intent websiteIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(mUrl));
+        if (websiteIntent.resolveActivity(getPackageManager()) != null) {
+            startActivity(websiteIntent);
+        }
+    }
+
+    private void showBody(Spanned body) {
+        mLoadingIndicator.setVisibility(View.GONE);
+        if (body != null) {
+            mBody.setText(body);
+        } else {
+            mScrollView.setVisibility(View.GONE);
+            mEmptyView.setVisibility(View.VISIBLE);
+        }
+    }
+
+    /**
+     * Reads the stored body, or downloads it, and builds its text off the main thread
+     */
+    private static class BodyTask extends AsyncTask<String, Void, Spanned> {
+
+        private final ArticleStore mStore;
+        private final WeakReference<ArticleReaderActivity> mActivity;
+
+        BodyTask(ArticleReaderActivity activity) {
+            mStore = ArticleStore.getInstance(activity);
+            mActivity = new WeakReference<>(activity);
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        protected Spanned doInBackground(String... urls) {
+            String body = null;
+            try {
+                body = mStore.get(urls[0]);
+                if (body == null) {
+                    body = mStore.fetch(urls[0]);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Problem loading the article " + urls[0], e);
+            }
+
+            if (body == null) {
+                return null;
+            }
+
+            return Html.fromHtml(NETWORK_ELEMENTS.matcher(body).replaceAll(""));
+        }
+
+        @Override
+        protected void onPostExecute(Spanned body) {
+            ArticleReaderActivity activity = mActivity.get();
+            if (activity != null && !activity.isFinishing()) {
+                activity.showBody(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the bodies of the articles on disk, gzip compressed, so the reader opens them without
+ * the network. The bodies of the articles on screen are prefetched while on an unmetered
+ * network, within a storage budget that evicts the least recently read ones.
+ */
+final class ArticleStore {
+
+    private static final String TAG = "ArticleStore";
+
+    // The compressed bodies kept, a few hundred articles
+    private static final long MAX_BYTES = 10 * 1024 * 1024;
+
+    private static ArticleStore sInstance;
+
+    private final Context mContext;
+
+    private final DiskCache mCache;
+
+    // One prefetch at a time, so it never competes much with the news requests
+    private final ExecutorService mPrefetchExecutor = Executors.newSingleThreadExecutor();
+
+    // The articles being prefetched, guarded by this
+    private final Set<String> mPrefetching = new HashSet<>();
+
+    static synchronized ArticleStore getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ArticleStore(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    private ArticleStore(Context context) {
+        mContext = context;
+        mCache = new DiskCache(new File(context.getFilesDir(), "articles"), MAX_BYTES);
+    }
+
+    /**
+     * Returns the stored body of the article, or <code>null</code> when it is not stored.
+     * Must be called off the main thread.
+     */
+    String get(String webUrl) throws IOException {
+        File file = mCache.get(webUrl);
+        if (file == null) {
+            return null;
+        }
+
+        Metrics.getInstance().increment("article.stored_hit", 1);
+        InputStream inputStream = new GZIPInputStream(new FileInputStream(file));
+        try {
+            return QueryUtils.readFromStream(inputStream, -1, QueryUtils.DEFAULT_CHARSET);
+        } finally {
+            inputStream.close();
+        }
+    }
+
+    /**
+     * Downloads and stores the body of the article. Must be called off the main thread.
+     *
+     * @return the body, or <code>null</code> when the article has none
+     */
+    String fetch(String webUrl) throws IOException {
+        String body = QueryUtils.fetchArticleBody(webUrl);
+        if (body != null) {
+            put(webUrl, body);
+        }
+
+        return body;
+    }
+
+    private void put(String webUrl, String body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(body.length() / 3);
+        GZIPOutputStream outputStream = new GZIPOutputStream(bytes);
+        try {
+            outputStream.write(body.getBytes(QueryUtils.DEFAULT_CHARSET));
+        } finally {
+            outputStream.close();
+        }
+
+        mCache.put(webUrl, new ByteArrayInputStream(bytes.toByteArray()));
+    }
+
+    /**
+     * Stores the bodies of the given articles that are not stored yet, in the background and
+     * only when the network is unmetered.
+     */
+    void prefetch(List<String> webUrls) {
+        if (!NewsSyncUtils.isUnmeteredNetworkAvailable(mContext)) {
+            return;
+        }
+
+        for (final String webUrl : webUrls) {
+            synchronized (this) {
+                if (!mPrefetching.add(webUrl)) {
+                    continue;
+                }
+            }
+
+            mPrefetchExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        // The network may have changed while it was waiting
+                        if (!mCache.contains(webUrl)
+                                && NewsSyncUtils.isUnmeteredNetworkAvailable(mContext)) {
+                            fetch(webUrl);
+                            Metrics.getInstance().increment("article.prefetched", 1);
+                        }
+                    } catch (IOException e) {
+                        Log.e(TAG, "Problem prefetching the article " + webUrl, e);
+                    } finally {
+                        synchronized (ArticleStore.this) {
+                            mPrefetching.remove(webUrl);
+                        }
+                    }
+                }
+            });
+        }
+    }
+}
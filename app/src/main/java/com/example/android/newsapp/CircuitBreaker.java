@@ -0,0 +1,116 @@
+package com.example.android.newsapp;
+
+import java.util.Locale;
+
+/**
+ * Stops the requests to the API after repeated failures, so an outage or a rate limit is not
+ * made worse by the refreshes. Once open, the circuit lets a single trial request through
+ * after a cool down, and closes again when it succeeds.
+ */
+final class CircuitBreaker {
+
+    private enum State {
+        CLOSED,
+        OPEN,
+        // One trial request is in flight
+        HALF_OPEN
+    }
+
+    private final int mFailureThreshold;
+    private final long mOpenMillis;
+
+    private State mState = State.CLOSED;
+
+    // Transient failures in a row
+    private int mFailures;
+
+    // When the circuit lets a trial request through, while open
+    private long mRetryAt;
+
+    // Times the circuit opened, and requests refused meanwhile
+    private int mOpenings;
+    private long mRejected;
+
+    /**
+     * @param failureThreshold the failures in a row that open the circuit
+     * @param openMillis       how long the circuit stays open before a trial request
+     */
+    CircuitBreaker(int failureThreshold, long openMillis) {
+        mFailureThreshold = failureThreshold;
+        mOpenMillis = openMillis;
+    }
+
+    /**
+     * Whether a request may be sent now. When it returns <code>true</code> for the trial
+     * request, its result must be reported.
+     */
+    synchronized boolean allowRequest(long now) {
+        switch (mState) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now >= mRetryAt) {
+                    mState = State.HALF_OPEN;
+                    return true;
+                }
+                break;
+            case HALF_OPEN:
+                break;
+        }
+
+        mRejected++;
+        return false;
+    }
+
+    synchronized void onSuccess() {
+        mState = State.CLOSED;
+        mFailures = 0;
+    }
+
+    /**
+     * Reports a request that was let through but cancelled before its result, so the next
+     * one can be the trial request instead.
+     */
+    synchronized void onAbandoned() {
+        if (mState == State.HALF_OPEN) {
+            mState = State.OPEN;
+        }
+    }
+
+    /**
+     * Reports a failure of the API, which opens the circuit when it follows too many others
+     * or when it is the trial request.
+     *
+     * @param retryAfterMillis how long the server asked to wait, which keeps the circuit open
+     *                         longer than usual; {@link NewsFetchException#NO_RETRY_AFTER}
+     *                         otherwise
+     */
+    synchronized void onFailure(long now, long retryAfterMillis) {
+        mFailures++;
+        if (mState == State.HALF_OPEN || mFailures >= mFailureThreshold
+                || retryAfterMillis > mOpenMillis) {
+            if (mState != State.OPEN) {
+                mOpenings++;
+            }
+            mState = State.OPEN;
+            mRetryAt = now + Math.max(mOpenMillis, retryAfterMillis);
+        }
+    }
+
+    /**
+     * Returns when the circuit lets a request through again, or <code>now</code> if it does.
+     */
+    synchronized long getRetryAt(long now) {
+        return mState == State.CLOSED ? now : Math.max(now, mRetryAt);
+    }
+
+    synchronized boolean isOpen() {
+        return mState != State.CLOSED;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US, "state=%s failures=%d openings=%d rejected=%d",
+                mState, mFailures, mOpenings, mRejected);
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.android.newsapp;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Counts the bytes read from the wrapped stream, and the time spent waiting for them
+ */
+class CountingInputStream extends FilterInputStream {
+
+    private long mCount;
+
+    private long mReadNanos;
+
+    CountingInputStream(InputStream in) {
+        super(in);
+    }
+
+    long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the time spent in the reads of the wrapped stream, in nanoseconds.
+     */
+    long getReadNanos() {
+        return mReadNanos;
+    }
+
+    @Override
+    public int read() throws IOException {
+        long start = System.nanoTime();
+        int result = super.read();
+        mReadNanos += System.nanoTime() - start;
+        if (result != -1) {
+            mCount++;
+        }
+        return result;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int count) throws IOException {
+        long start = System.nanoTime();
+        int result = super.read(buffer, offset, count);
+        mReadNanos += System.nanoTime() - start;
+        if (result != -1) {
+            mCount += result;
+        }
+        return result;
+    }
+
+    @Override
+    public long skip(long count) throws IOException {
+        long result = super.skip(count);
+        mCount += result;
+        return result;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.android.newsapp;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Refreshes a first page by asking each section only for the news first published since the
+ * newest one fetched from it, its watermark, and merging them into the stored ones. On a quiet
+ * feed a refresh then only brings back the newest news of each section. The whole page is
+ * fetched again when nothing is stored, since a new query or page size stores under a new key,
+ * or when a section brings a whole page of new news, which may hide more behind it. A section
+ * without a watermark, like one that failed the last time, is fetched whole.
+ */
+final class DeltaSync {
+
+    // The dates of from-date, compared by the API with the first publication dates
+    private static final ThreadLocal<SimpleDateFormat> FROM_DATE_FORMAT =
+            new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'",
+                            Locale.US);
+                    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    return format;
+                }
+            };
+
+    private DeltaSync() {
+    }
+
+    /**
+     * Fetches the news of the first page of the given sections.
+     *
+     * @param storedNews the news stored for the same request, newest first, which the new
+     *                   ones are merged into
+     * @param watermarks the newest first publication date fetched from each section, by tag,
+     *                   stored along with the news; updated with the news fetched
+     * @param pageSize   the size of the page of each section
+     * @param channel    the fetch coordinator channel of the caller, or <code>null</code>
+     * @return the new news followed by the stored ones, at most a page per section
+     */
+    static List<News> fetch(List<String> urls, List<News> storedNews,
+                            Map<String, Long> watermarks, int pageSize, String channel)
+            throws NewsFetchException {
+        Metrics metrics = Metrics.getInstance();
+        if (!storedNews.isEmpty()) {
+            List<String> deltaUrls = new ArrayList<>(urls.size());
+            boolean[] delta = new boolean[urls.size()];
+            for (int i = 0; i < urls.size(); i++) {
+                Long since = watermarks.get(tagOf(urls.get(i)));
+                delta[i] = since != null;
+                deltaUrls.add(delta[i] ? newerThan(urls.get(i), since) : urls.get(i));
+            }
+
+            List<List<News>> sections = NewsFeedFetcher.fetchSections(deltaUrls, channel);
+            if (!hasWholePage(sections, delta, pageSize)) {
+                metrics.increment(Metrics.SYNC_DELTA, 1);
+                updateWatermarks(watermarks, urls, sections);
+                return merge(NewsFeedFetcher.merge(succeeded(sections), true), storedNews,
+                        pageSize * urls.size());
+            }
+        }
+
+        metrics.increment(Metrics.SYNC_FULL, 1);
+        List<List<News>> sections = NewsFeedFetcher.fetchSections(urls, channel);
+
+        // The stored news are replaced, and with them what was fetched from each section
+        watermarks.clear();
+        updateWatermarks(watermarks, urls, sections);
+        return NewsFeedFetcher.merge(succeeded(sections), true);
+    }
+
+    /**
+     * Returns whether a section asked for its new news brought a whole page of them.
+     */
+    private static boolean hasWholePage(List<List<News>> sections, boolean[] delta,
+                                        int pageSize) {
+        for (int i = 0; i < sections.size(); i++) {
+            if (delta[i] && sections.get(i) != null && sections.get(i).size() >= pageSize) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the watermark of each section that succeeded to the newest news it brought.
+     */
+    private static void updateWatermarks(Map<String, Long> watermarks, List<String> urls,
+                                         List<List<News>> sections) {
+        for (int i = 0; i < sections.size(); i++) {
+            long newest = sections.get(i) != null ? newestDate(sections.get(i)) : News.NO_DATE;
+            if (newest != News.NO_DATE) {
+                String tag = tagOf(urls.get(i));
+                Long watermark = watermarks.get(tag);
+                watermarks.put(tag, watermark != null ? Math.max(watermark, newest) : newest);
+            }
+        }
+    }
+
+    private static List<List<News>> succeeded(List<List<News>> sections) {
+        List<List<News>> succeeded = new ArrayList<>(sections.size());
+        for (List<News> section : sections) {
+            if (section != null) {
+                succeeded.add(section);
+            }
+        }
+        return succeeded;
+    }
+
+    /**
+     * Returns the newest first publication date of the given news, or {@link News#NO_DATE}.
+     */
+    static long newestDate(List<News> news) {
+        long newest = News.NO_DATE;
+        for (News currentNews : news) {
+            newest = Math.max(newest, currentNews.getDate());
+        }
+        return newest;
+    }
+
+    /**
+     * Returns the given search URL restricted to the news first published at or after the
+     * given date. The bound is inclusive, so the news published in the same second as the
+     * newest stored one are not missed, the merge dropping the copy of that one.
+     */
+    static String newerThan(String url, long since) {
+        StringBuilder deltaUrl = new StringBuilder(url)
+                .append(url.indexOf('?') < 0 ? '?' : '&')
+                .append(GuardianApi.FROM_DATE_PARAM).append('=').append(encode(formatDate(since)));
+        if (queryParameter(url, GuardianApi.USE_DATE_PARAM) == null) {
+            deltaUrl.append('&').append(GuardianApi.USE_DATE_PARAM).append('=')
+                    .append(GuardianApi.FIRST_PUBLICATION_DATE);
+        }
+        return deltaUrl.toString();
+    }
+
+    /**
+     * Returns the tag of the given search URL, or the URL itself when it has none.
+     */
+    static String tagOf(String url) {
+        String tag = queryParameter(url, GuardianApi.TAG_PARAM);
+        return tag != null ? tag : url;
+    }
+
+    /**
+     * Merges the new news into the stored ones, both newest first, keeping the first news of
+     * each URL and at most the given number of news.
+     */
+    static List<News> merge(List<News> newNews, List<News> storedNews, int maxNews) {
+        @SuppressWarnings("unchecked")
+        List<News> merged = NewsFeedFetcher.merge(Arrays.asList(newNews, storedNews), true);
+        return merged.size() <= maxNews ? merged
+                : new ArrayList<>(merged.subList(0, maxNews));
+    }
+
+    private static String formatDate(long date) {
+        return FROM_DATE_FORMAT.get().format(new Date(date));
+    }
+
+    /**
+     * Returns the decoded value of the given parameter of the URL, or <code>null</code>.
+     */
+    private static String queryParameter(String url, String name) {
+        int query = url.indexOf('?');
+        if (query < 0) {
+            return null;
+        }
+
+        for (String parameter : url.substring(query + 1).split("&")) {
+            if (parameter.startsWith(name + "=")) {
+                try {
+                    return URLDecoder.decode(parameter.substring(name.length() + 1), "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    // UTF-8 is always available
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String encode(String value) {
+        try {
+            return URLEncoder.encode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            // UTF-8 is always available
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Keeps files keyed by URL in a directory, up to a total size, removing the least recently
+ * used ones first. Must be used off the main thread.
+ */
+final class DiskCache {
+
+    private static final String TAG = "DiskCache";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    // Oldest use first
+    private static final Comparator<File> LEAST_RECENTLY_USED = new Comparator<File>() {
+        @Override
+        public int compare(File first, File second) {
+            long firstUse = first.lastModified();
+            long secondUse = second.lastModified();
+            return firstUse < secondUse ? -1 : (firstUse == secondUse ? 0 : 1);
+        }
+    };
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+
+    // The size of the files, -1 until the directory was read
+    private long mSize = -1;
+
+    DiskCache(File directory, long maxBytes) {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the file of the given URL, or <code>null</code> when it is not cached.
+     */
+    synchronized File get(String url) {
+        File file = fileFor(url);
+        if (!file.exists()) {
+            return null;
+        }
+
+        // The modification time orders the evictions
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * Whether the content of the given URL is stored, without counting it as used.
+     */
+    synchronized boolean contains(String url) {
+        return fileFor(url).exists();
+    }
+
+    /**
+     * Stores the content of the given URL read from the stream, returning its file.
+     */
+    File put(String url, InputStream inputStream) throws IOException {
+        File file = fileFor(url);
+        File tempFile = new File(mDirectory, file.getName() + "-"
+                + Thread.currentThread().getId() + TEMP_SUFFIX);
+
+        // Written outside the lock, so the other thumbnails can be read meanwhile
+        synchronized (this) {
+            ensureDirectory();
+        }
+        OutputStream outputStream = new FileOutputStream(tempFile);
+        try {
+            byte[] buffer = new byte[8 * 1024];
+            int read;
+            while ((read = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            outputStream.close();
+            tempFile.delete();
+            throw e;
+        }
+        outputStream.close();
+
+        synchronized (this) {
+            long previousLength = file.length();
+            if (!tempFile.renameTo(file)) {
+                tempFile.delete();
+                throw new IOException("Could not store " + file);
+            }
+            mSize += file.length() - previousLength;
+            trim();
+        }
+
+        return file;
+    }
+
+    private void ensureDirectory() {
+        if (mSize != -1) {
+            return;
+        }
+
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.e(TAG, "Could not create " + mDirectory);
+        }
+
+        mSize = 0;
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(TEMP_SUFFIX)) {
+                    // Left by a write that did not finish
+                    file.delete();
+                } else {
+                    mSize += file.length();
+                }
+            }
+        }
+    }
+
+    private void trim() {
+        if (mSize <= mMaxBytes) {
+            return;
+        }
+
+        File[] files = mDirectory.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        Arrays.sort(files, LEAST_RECENTLY_USED);
+        for (File file : files) {
+            if (mSize <= mMaxBytes) {
+                break;
+            }
+            if (file.getName().endsWith(TEMP_SUFFIX)) {
+                continue;
+            }
+
+            long length = file.length();
+            if (file.delete()) {
+                mSize -= length;
+            }
+        }
+    }
+
+    /**
+     * Names the file after the hash of the URL, which is safe for any file system.
+     */
+    private File fileFor(String url) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("MD5");
+            byte[] hash = digest.digest(url.getBytes("UTF-8"));
+
+            StringBuilder name = new StringBuilder(hash.length * 2);
+            for (byte b : hash) {
+                name.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+            return new File(mDirectory, name.toString());
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            // Both are always available
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The top of the feed last shown, kept in a small file so the first frame of a cold start can
+ * show it without opening the database or waiting for the network. The rows are kept with
+ * their display text, along with the sections they were loaded for.
+ */
+final class FeedSnapshot {
+
+    private static final String TAG = "FeedSnapshot";
+
+    private static final String FILE_NAME = "feed_snapshot";
+
+    // Bumped whenever the format changes, the snapshots of another version being ignored
+    private static final int VERSION = 2;
+
+    // About a screen and a half of rows, which keeps the file a few KB
+    private static final int MAX_NEWS = 15;
+
+    // Writes one snapshot at a time, in the order they were taken
+    private static final ExecutorService sWriter = Executors.newSingleThreadExecutor();
+
+    private FeedSnapshot() {
+    }
+
+    /**
+     * Reads the last snapshot. Small enough to be read on the main thread during startup.
+     *
+     * @param sections the tags of the sections chosen now
+     * @return the formatted news, or an empty list when there is no valid snapshot of the
+     * given sections
+     */
+    static List<News> read(Context context, Set<String> sections) {
+        File file = new File(context.getFilesDir(), FILE_NAME);
+
+        DataInputStream input = null;
+        try {
+            input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (input.readInt() != VERSION || !keyFor(sections).equals(input.readUTF())) {
+                return Collections.emptyList();
+            }
+
+            int count = input.readInt();
+            List<News> news = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                News currentNews = new News(readNullableUTF(input), readNullableUTF(input),
+                        readNullableUTF(input), readNullableUTF(input), input.readLong(),
+                        readNullableUTF(input));
+                news.add(new News(currentNews, readNullableUTF(input),
+                        readNullableUTF(input)));
+            }
+            return news;
+        } catch (FileNotFoundException e) {
+            return Collections.emptyList();
+        } catch (IOException e) {
+            Log.w(TAG, "Problem reading the feed snapshot", e);
+            return Collections.emptyList();
+        } finally {
+            closeQuietly(input);
+        }
+    }
+
+    /**
+     * Replaces the snapshot with the top of the given news, in the background.
+     *
+     * @param sections the tags of the sections the news were loaded for
+     * @param news     the formatted news
+     */
+    static void write(Context context, Set<String> sections, List<News> news) {
+        final File file = new File(context.getFilesDir(), FILE_NAME);
+        final String sectionsKey = keyFor(sections);
+        final List<News> top = new ArrayList<>(news.subList(0, Math.min(news.size(), MAX_NEWS)));
+
+        sWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                // Written aside then renamed, so a crash never leaves half a snapshot
+                File tempFile = new File(file.getPath() + ".tmp");
+                DataOutputStream output = null;
+                try {
+                    output = new DataOutputStream(new BufferedOutputStream(
+                            new FileOutputStream(tempFile)));
+                    output.writeInt(VERSION);
+                    output.writeUTF(sectionsKey);
+                    output.writeInt(top.size());
+                    for (News currentNews : top) {
+                        writeNullableUTF(output, currentNews.getTitle());
+                        writeNullableUTF(output, currentNews.getSection());
+                        writeNullableUTF(output, currentNews.getUrl());
+                        writeNullableUTF(output, currentNews.getAuthor());
+                        output.writeLong(currentNews.getDate());
+                        writeNullableUTF(output, currentNews.getThumbnail());
+                        writeNullableUTF(output, textOf(currentNews.getDisplayAuthor()));
+                        writeNullableUTF(output, textOf(currentNews.getDisplayDate()));
+                    }
+                    output.close();
+                    output = null;
+
+                    if (!tempFile.renameTo(file)) {
+                        Log.w(TAG, "Problem replacing the feed snapshot");
+                    }
+                } catch (IOException e) {
+                    Log.w(TAG, "Problem writing the feed snapshot", e);
+                } finally {
+                    closeQuietly(output);
+                }
+            }
+        });
+    }
+
+    /**
+     * Deletes the snapshot, so the next start waits for the cached news.
+     */
+    static void clear(Context context) {
+        new File(context.getFilesDir(), FILE_NAME).delete();
+    }
+
+    /**
+     * Returns the sections as one string, the same for the same sections in any order.
+     */
+    private static String keyFor(Set<String> sections) {
+        return TextUtils.join(",", new TreeSet<>(sections));
+    }
+
+    private static String textOf(CharSequence text) {
+        return text != null ? text.toString() : null;
+    }
+
+    private static String readNullableUTF(DataInputStream input) throws IOException {
+        return input.readBoolean() ? input.readUTF() : null;
+    }
+
+    private static void writeNullableUTF(DataOutputStream output, String value)
+            throws IOException {
+        output.writeBoolean(value != null);
+        if (value != null) {
+            output.writeUTF(value);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Problem closing the feed snapshot", e);
+            }
+        }
+    }
+}
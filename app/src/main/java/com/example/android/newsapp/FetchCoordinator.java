@@ -0,0 +1,206 @@
+package com.example.android.newsapp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Sits in front of {@link QueryUtils#fetchNewsData}. Identical requests in flight share a
+ * single HTTP request, and a request made on a channel aborts the one the channel was waiting
+ * for, when nobody else is waiting for it.
+ */
+final class FetchCoordinator {
+
+    private static final FetchCoordinator sInstance = new FetchCoordinator();
+
+    // The requests in flight, by URL
+    private final Map<String, Call> mInFlight = new HashMap<>();
+
+    // The request each channel is waiting for
+    private final Map<String, Call> mChannels = new HashMap<>();
+
+    // Requests that joined one already in flight
+    private final AtomicLong mCoalesced = new AtomicLong();
+
+    // Requests aborted because they were superseded or cancelled
+    private final AtomicLong mCancelled = new AtomicLong();
+
+    static FetchCoordinator getInstance() {
+        return sInstance;
+    }
+
+    private FetchCoordinator() {
+    }
+
+    /**
+     * Fetches the news of the given URL, joining the identical request in flight if any.
+     *
+     * @param channel who is fetching, for example a loader, so its next request supersedes
+     *                this one; <code>null</code> when it is never superseded
+     * @throws NewsFetchException when the request failed or was cancelled, each fetch that
+     *                            shared it getting the same failure
+     */
+    List<News> fetch(String url, String channel) throws NewsFetchException {
+        Call call;
+        boolean owner = false;
+
+        synchronized (this) {
+            if (channel != null) {
+                Call superseded = mChannels.remove(channel);
+                if (superseded != null && !superseded.mUrl.equals(url)) {
+                    leave(superseded);
+                } else if (superseded != null) {
+                    superseded.mWaiters--;
+                }
+            }
+
+            call = mInFlight.get(url);
+            if (call == null) {
+                call = new Call(url);
+                mInFlight.put(url, call);
+                owner = true;
+            } else {
+                mCoalesced.incrementAndGet();
+            }
+
+            call.mWaiters++;
+            if (channel != null) {
+                mChannels.put(channel, call);
+            }
+        }
+
+        if (owner) {
+            try {
+                call.mResult = QueryUtils.fetchNewsData(url, call);
+            } catch (NewsFetchException e) {
+                call.mFailure = e;
+            } finally {
+                synchronized (this) {
+                    if (mInFlight.get(url) == call) {
+                        mInFlight.remove(url);
+                    }
+                }
+                call.mDone.countDown();
+            }
+        } else {
+            try {
+                call.mDone.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized (this) {
+            if (channel != null && mChannels.get(channel) == call) {
+                mChannels.remove(channel);
+                call.mWaiters--;
+            }
+        }
+
+        if (call.mCancelled) {
+            throw new NewsFetchException(NewsFetchException.Reason.CANCELLED,
+                    "Request cancelled " + url);
+        } else if (call.mFailure != null) {
+            throw call.mFailure;
+        }
+
+        return call.mResult;
+    }
+
+    /**
+     * Stops waiting for the request of the given channel, aborting it when nobody else waits
+     * for it.
+     */
+    synchronized void cancel(String channel) {
+        Call call = mChannels.remove(channel);
+        if (call != null) {
+            leave(call);
+        }
+    }
+
+    private void leave(Call call) {
+        call.mWaiters--;
+        if (call.mWaiters <= 0) {
+            mInFlight.remove(call.mUrl);
+            call.cancel();
+            mCancelled.incrementAndGet();
+        }
+    }
+
+    long getCoalesced() {
+        return mCoalesced.get();
+    }
+
+    long getCancelled() {
+        return mCancelled.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "coalesced=%d cancelled=%d", getCoalesced(),
+                getCancelled());
+    }
+
+    /**
+     * One HTTP request, possibly shared by several fetches
+     */
+    static final class Call {
+
+        private final String mUrl;
+        private final CountDownLatch mDone = new CountDownLatch(1);
+
+        // Released when the request is cancelled, waking up a wait before a retry
+        private final CountDownLatch mCancelSignal = new CountDownLatch(1);
+
+        // How many fetches are waiting for this request, guarded by the coordinator
+        private int mWaiters;
+
+        private volatile List<News> mResult = Collections.emptyList();
+        private volatile NewsFetchException mFailure;
+        private volatile boolean mCancelled;
+        private volatile NewsTransport.Exchange mExchange;
+
+        private Call(String url) {
+            mUrl = url;
+        }
+
+        boolean isCancelled() {
+            return mCancelled;
+        }
+
+        /**
+         * Called by {@link QueryUtils} before the request is sent, so it can be aborted.
+         */
+        void setExchange(NewsTransport.Exchange exchange) {
+            mExchange = exchange;
+            if (mCancelled) {
+                exchange.cancel();
+            }
+        }
+
+        /**
+         * Waits before a retry of the request.
+         *
+         * @return <code>false</code> when the request was cancelled meanwhile
+         */
+        boolean awaitRetry(long delayMillis) throws InterruptedException {
+            return !mCancelSignal.await(delayMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void cancel() {
+            mCancelled = true;
+            mCancelSignal.countDown();
+
+            // Makes the blocked reads of the fetching thread fail right away
+            NewsTransport.Exchange exchange = mExchange;
+            if (exchange != null) {
+                exchange.cancel();
+            }
+        }
+    }
+}
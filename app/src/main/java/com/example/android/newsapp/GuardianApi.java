@@ -0,0 +1,61 @@
+package com.example.android.newsapp;
+
+import android.net.Uri;
+
+/**
+ * URLs and parameters of the Guardian content API
+ */
+final class GuardianApi {
+
+    // Where the requests go: the Guardian News API, unless the build points elsewhere with
+    // -PguardianApiUrl=..., or a test at a local stub server
+    private static volatile String sBaseUrl = BuildConfig.GUARDIAN_API_URL;
+
+    static final String API_KEY = "36a7884f-b99c-41d7-9bbf-e94206c36fbd";
+
+    static final String QUERY_PARAM = "q";
+    static final String SHOW_FIELDS_PARAM = "show-fields";
+    static final String API_KEY_PARAM = "api-key";
+    static final String TAG_PARAM = "tag";
+    static final String PAGE_SIZE_PARAM = "page-size";
+    static final String PAGE_PARAM = "page";
+    static final String ORDER_BY_PARAM = "order-by";
+    static final String FROM_DATE_PARAM = "from-date";
+    static final String USE_DATE_PARAM = "use-date";
+
+    // The date use-date makes from-date compare with, the one the news are dated by
+    static final String FIRST_PUBLICATION_DATE = "first-publication";
+
+    private GuardianApi() {
+    }
+
+    static String getBaseUrl() {
+        return sBaseUrl;
+    }
+
+    /**
+     * Points the requests at another server, without a trailing slash.
+     */
+    static void setBaseUrl(String baseUrl) {
+        sBaseUrl = baseUrl;
+    }
+
+    static String searchUrl() {
+        return sBaseUrl + "/search";
+    }
+
+    /**
+     * Returns the API URL of the article with the given web URL, asking for its body. The ID
+     * of a content is the path of its web URL.
+     */
+    static String articleUrl(String webUrl) {
+        String id = Uri.parse(webUrl).getPath();
+
+        return Uri.parse(sBaseUrl + id)
+                .buildUpon()
+                .appendQueryParameter(SHOW_FIELDS_PARAM, "body")
+                .appendQueryParameter(API_KEY_PARAM, API_KEY)
+                .build()
+                .toString();
+    }
+}
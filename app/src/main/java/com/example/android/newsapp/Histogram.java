@@ -0,0 +1,92 @@
+package com.example.android.newsapp;
+
+import java.util.Locale;
+
+/**
+ * Distribution of durations in buckets growing by powers of two, from one microsecond to
+ * about a minute, so recording never allocates and the percentiles are within a factor of two.
+ */
+final class Histogram {
+
+    // The upper bound of bucket i is 2^i microseconds, the last one holding everything above
+    private static final int BUCKET_COUNT = 27;
+
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+
+    private long mCount;
+    private long mSumMicros;
+    private long mMinMicros = Long.MAX_VALUE;
+    private long mMaxMicros;
+
+    synchronized void record(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+
+        mBuckets[bucketOf(micros)]++;
+        mCount++;
+        mSumMicros += micros;
+        mMinMicros = Math.min(mMinMicros, micros);
+        mMaxMicros = Math.max(mMaxMicros, micros);
+    }
+
+    private static int bucketOf(long micros) {
+        int bucket = micros <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(micros - 1);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    synchronized long getCount() {
+        return mCount;
+    }
+
+    synchronized double getMeanMillis() {
+        return mCount > 0 ? mSumMicros / 1000.0 / mCount : 0;
+    }
+
+    synchronized double getMinMillis() {
+        return mCount > 0 ? mMinMicros / 1000.0 : 0;
+    }
+
+    synchronized double getMaxMillis() {
+        return mMaxMicros / 1000.0;
+    }
+
+    /**
+     * Returns the upper bound of the bucket holding the given percentile, never above the
+     * maximum recorded.
+     *
+     * @param percentile between 0 and 100
+     */
+    synchronized double getPercentileMillis(double percentile) {
+        if (mCount == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(mCount * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(1L << i, mMaxMicros) / 1000.0;
+            }
+        }
+
+        return getMaxMillis();
+    }
+
+    synchronized void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets[i] = 0;
+        }
+        mCount = 0;
+        mSumMicros = 0;
+        mMinMicros = Long.MAX_VALUE;
+        mMaxMicros = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.US,
+                "n=%d mean=%.2f p50=%.2f p90=%.2f p99=%.2f max=%.2f ms", getCount(),
+                getMeanMillis(), getPercentileMillis(50), getPercentileMillis(90),
+                getPercentileMillis(99), getMaxMillis());
+    }
+}
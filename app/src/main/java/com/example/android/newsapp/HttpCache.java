@@ -0,0 +1,167 @@
+package com.example.android.newsapp;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps, for each requested URL, the validators and the freshness of the last response along
+ * with the news parsed from it, so a request can be skipped or answered by a 304.
+ */
+final class HttpCache {
+
+    // How many URLs are remembered
+    private static final int MAX_ENTRIES = 32;
+
+    private static final String MAX_AGE = "max-age=";
+
+    private static final HttpCache sInstance = new HttpCache();
+
+    private final Map<String, Entry> mEntries = new LinkedHashMap<String, Entry>(
+            MAX_ENTRIES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, HttpCache.Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    // Requests answered without going to the network
+    private final AtomicLong mHits = new AtomicLong();
+
+    // Requests that downloaded a full response
+    private final AtomicLong mMisses = new AtomicLong();
+
+    // Requests answered by a 304 Not Modified
+    private final AtomicLong mNotModified = new AtomicLong();
+
+    // Body bytes that did not have to be downloaded again
+    private final AtomicLong mSavedBytes = new AtomicLong();
+
+    // Body bytes downloaded, as sent over the wire
+    private final AtomicLong mDownloadedBytes = new AtomicLong();
+
+    static HttpCache getInstance() {
+        return sInstance;
+    }
+
+    private HttpCache() {
+    }
+
+    synchronized Entry get(String url) {
+        return mEntries.get(url);
+    }
+
+    synchronized void put(String url, Entry entry) {
+        mEntries.put(url, entry);
+    }
+
+    synchronized void clear() {
+        mEntries.clear();
+    }
+
+    void recordHit(Entry entry) {
+        mHits.incrementAndGet();
+        mSavedBytes.addAndGet(entry.bodyBytes);
+    }
+
+    void recordNotModified(Entry entry) {
+        mNotModified.incrementAndGet();
+        mSavedBytes.addAndGet(entry.bodyBytes);
+    }
+
+    void recordMiss(long bodyBytes) {
+        mMisses.incrementAndGet();
+        mDownloadedBytes.addAndGet(bodyBytes);
+    }
+
+    long getHits() {
+        return mHits.get();
+    }
+
+    long getMisses() {
+        return mMisses.get();
+    }
+
+    long getNotModified() {
+        return mNotModified.get();
+    }
+
+    long getSavedBytes() {
+        return mSavedBytes.get();
+    }
+
+    long getDownloadedBytes() {
+        return mDownloadedBytes.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "hits=%d misses=%d notModified=%d saved=%dB downloaded=%dB",
+                getHits(), getMisses(), getNotModified(), getSavedBytes(), getDownloadedBytes());
+    }
+
+    /**
+     * Returns until when a response with the given Cache-Control header is fresh.
+     */
+    static long expiresAt(String cacheControl, long now) {
+        if (cacheControl == null) {
+            return now;
+        }
+
+        String value = cacheControl.toLowerCase(Locale.US);
+        if (value.contains("no-cache") || value.contains("no-store")) {
+            return now;
+        }
+
+        int start = value.indexOf(MAX_AGE);
+        if (start == -1) {
+            return now;
+        }
+
+        start += MAX_AGE.length();
+        int end = start;
+        while (end < value.length() && Character.isDigit(value.charAt(end))) {
+            end++;
+        }
+
+        try {
+            return now + Long.parseLong(value.substring(start, end)) * 1000;
+        } catch (NumberFormatException e) {
+            return now;
+        }
+    }
+
+    /**
+     * What is remembered of the last response of an URL
+     */
+    static final class Entry {
+
+        final String eTag;
+        final String lastModified;
+        final List<News> news;
+        final long bodyBytes;
+
+        // Moved forward in place when a 304 revalidates the entry
+        volatile long expiresAt;
+
+        Entry(String eTag, String lastModified, long expiresAt, List<News> news,
+              long bodyBytes) {
+            this.eTag = eTag;
+            this.lastModified = lastModified;
+            this.expiresAt = expiresAt;
+            this.news = Collections.unmodifiableList(news);
+            this.bodyBytes = bodyBytes;
+        }
+
+        boolean isFresh(long now) {
+            return now < expiresAt;
+        }
+
+        boolean hasValidators() {
+            return eTag != null || lastModified != null;
+        }
+    }
+}
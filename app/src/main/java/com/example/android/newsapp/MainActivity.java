@@ -2,66 +2,158 @@ package com.example.android.newsapp;
 
 import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
-import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.Uri;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.PersistableBundle;
-import android.preference.PreferenceManager;
-import android.support.annotation.StringRes;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.v4.app.LoaderManager;
 import android.support.v4.content.Loader;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.DividerItemDecoration;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextUtils;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.KeyEvent;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.inputmethod.EditorInfo;
-import android.widget.AdapterView;
 import android.widget.EditText;
-import android.widget.ListView;
 import android.widget.ProgressBar;
 import android.widget.TextView;
 
+import java.io.IOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
 
 public class MainActivity extends AppCompatActivity implements LoaderManager
-        .LoaderCallbacks<List<News>>, OnSharedPreferenceChangeListener {
+        .LoaderCallbacks<List<News>>, Settings.Listener,
+        NewsListAdapter.OnNewsClickListener, NewsFeedFragment.Observer {
 
     private static final String TAG = "MainActivity";
 
-    // Loader ID
+    // Loader IDs, the first page and the following ones are loaded separately
     private static final int NEWS_LOADER_ID = 1;
+    private static final int NEXT_PAGE_LOADER_ID = 2;
+
+    // Key of the page in the loader arguments
+    private static final String PAGE_ARG = "page";
 
-    // Key to save the list position
-    private static final String LIST_SCROLL_POSITION = "SCROLL_POSITION";
+    // How close to the end of the list the next page starts loading, in rows
+    private static final int PREFETCH_DISTANCE = 5;
 
-    // The Guardian News API URL
-    private static final String THE_GUARDIAN_NEWS_API_URL = "http://content.guardianapis" +
-            ".com/search";
+    // How many of the articles on screen have their body prefetched, from the top
+    private static final int PREFETCH_ARTICLE_COUNT = 5;
 
-    private static final String QUERY_PARAM = "q";
-    private static final String SHOW_FIELDS_PARAM = "show-fields";
-    private static final String API_KEY_PARAM = "api-key";
-    private static final String TAG_PARAM = "tag";
-    private static final String PAGE_SIZE_PARAM = "page-size";
+    // How long the reload waits for another trigger before starting, in milliseconds
+    private static final long RELOAD_DEBOUNCE_MILLIS = 300;
+
+    // Key to save the position and the offset of the list
+    private static final String LIST_STATE = "LIST_STATE";
+
+    // Every section is sorted the same way, so they can be merged
+    private static final String ORDER_BY_NEWEST = "newest";
 
     // The news list adapter
     private NewsListAdapter mNewsListAdapter;
 
-    // The news update scheduler
-    private ScheduledExecutorService mUpdateScheduler;
+    // Restarts the loader once a burst of reload triggers is over
+    private final Handler mReloadHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mReloadRunnable = new Runnable() {
+        @Override
+        public void run() {
+            // The requests are built from the settings
+            if (!mSettings.isLoaded()) {
+                mSettings.whenLoaded(this);
+                return;
+            }
+
+            if (mRefreshScheduler != null) {
+                mRefreshScheduler.postpone();
+            }
+            getSupportLoaderManager().restartLoader(NEWS_LOADER_ID, null, MainActivity.this);
+        }
+    };
+
+    // Finishes the initialization once the first frame is drawn
+    private final Runnable mFirstFrameRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onFirstFrame();
+        }
+    };
+
+    // Finishes the initialization once the first frame is drawn and the settings are read
+    private final Runnable mFinishStartupRunnable = new Runnable() {
+        @Override
+        public void run() {
+            finishStartup();
+        }
+    };
+
+    // Shows the snapshot and starts the loader once the settings are read
+    private Runnable mSettingsLoadedRunnable;
+
+    // Follows the network the requests are shaped after: a slower one refreshes less often,
+    // and an unmetered one gets the article bodies that were put off
+    private final NetworkPolicy.Listener mNetworkListener = new NetworkPolicy.Listener() {
+        @Override
+        public void onNetworkClassChanged(NetworkPolicy.NetworkClass networkClass) {
+            if (mRefreshScheduler != null) {
+                mRefreshScheduler.reset(getUpdateIntervalMillis());
+            }
+            if (networkClass == NetworkPolicy.NetworkClass.UNMETERED) {
+                prefetchVisibleArticles();
+            }
+        }
+    };
+
+    // Refreshes the first page while the app is in the foreground, created after the first
+    // frame
+    private RefreshScheduler mRefreshScheduler;
+
+    // When onCreate started, to time the initial and the full display
+    private long mCreateNanos;
+
+    // Whether the news shown at startup are the snapshot, the loader starting after the first
+    // frame
+    private boolean mShowingSnapshot;
+
+    // Whether news arrived since the start, so the full display is reported once
+    private boolean mFullyDrawn;
+
+    // Whether the activity is between onStart and onStop
+    private boolean mStarted;
+
+    private LinearLayoutManager mLayoutManager;
+
+    // The settings, parsed once and kept in memory
+    private Settings mSettings;
+
+    // The query last submitted with the search action, rather than typed
+    private String mSubmittedQuery;
+
+    // The loaded news and their pages, kept across configuration changes
+    private NewsFeedFragment mFeed;
+
+    // The news in the list: the loaded ones when they match the query being typed, followed
+    // by the ones the local search index found
+    private List<News> mShownNews = Collections.emptyList();
 
     // The views
     /* Start */
@@ -69,7 +161,7 @@ public class MainActivity extends AppCompatActivity implements LoaderManager
     EditText mEditQuery;
 
     @BindView(R.id.news_list_view)
-    ListView mNewsListView;
+    RecyclerView mNewsListView;
 
     @BindView(R.id.empty_view)
     TextView mEmptyView;
@@ -80,28 +172,57 @@ public class MainActivity extends AppCompatActivity implements LoaderManager
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        mCreateNanos = System.nanoTime();
         super.onCreate(savedInstanceState);
 
-        disableConnectionReuseIfNecessary();
+        // Starts reading the settings from disk while the views are inflated
+        mSettings = Settings.getInstance(this);
+        if (savedInstanceState == null) {
+            warmUpTransport();
+        }
+        NetworkPolicy.getInstance().watch(this);
 
         setContentView(R.layout.activity_main);
 
         ButterKnife.bind(this);
 
-        mNewsListAdapter = new NewsListAdapter(this, 0);
+        mNewsListAdapter = new NewsListAdapter(this);
+        mLayoutManager = new LinearLayoutManager(this);
 
-        mNewsListView.setEmptyView(mEmptyView);
+        mNewsListView.setLayoutManager(mLayoutManager);
+        mNewsListView.setHasFixedSize(true);
+        mNewsListView.addItemDecoration(
+                new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
         mNewsListView.setAdapter(mNewsListAdapter);
 
-        mNewsListView.setOnItemClickListener(new AdapterView.OnItemClickListener() {
+        // A configuration change shows the news loaded before it, their query restored before
+        // the text watcher is added so nothing is searched again. A cold start shows the news
+        // of last time, until the loader delivers the current ones
+        mFeed = NewsFeedFragment.getInstance(getSupportFragmentManager());
+        if (mFeed.getQuery() != null) {
+            mEditQuery.setText(mFeed.getQuery());
+            mLoadingIndicator.setVisibility(View.GONE);
+            mFullyDrawn = true;
+        }
+        updateEmptyView();
+
+        mNewsListView.addOnScrollListener(new RecyclerView.OnScrollListener() {
             @Override
-            public void onItemClick(AdapterView<?> adapterView, View view, int position, long l) {
-                News currentNews = mNewsListAdapter.getItem(position);
-                Uri newsUri = Uri.parse(currentNews.getUrl());
+            public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+                // Prefetches the next page before the user reaches the end of the list
+                int totalItemCount = mNewsListAdapter.getItemCount();
+                int prefetchDistance =
+                        NetworkPolicy.getInstance().pagePrefetchDistance(PREFETCH_DISTANCE);
+                if (totalItemCount > 0 && mLayoutManager.findLastVisibleItemPosition()
+                        >= totalItemCount - 1 - prefetchDistance) {
+                    loadNextPage();
+                }
+            }
 
-                Intent websiteIntent = new Intent(Intent.ACTION_VIEW, newsUri);
-                if (websiteIntent.resolveActivity(getPackageManager()) != null) {
-                    startActivity(websiteIntent);
+            @Override
+            public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    prefetchVisibleArticles();
                 }
             }
         });
@@ -113,19 +234,12 @@ public class MainActivity extends AppCompatActivity implements LoaderManager
         mEditQuery.setOnEditorActionListener(new TextView.OnEditorActionListener() {
             @Override
             public boolean onEditorAction(TextView textView, int actionId, KeyEvent event) {
-                if (!isInternetAvailable()) {
-                    mLoadingIndicator.setVisibility(View.GONE);
-
-                    mEmptyView.setText(R.string.no_internet_connection);
-
-                    return false;
-                }
-
                 // Treats the search action from the EditText
                 if (actionId == EditorInfo.IME_ACTION_SEARCH) {
-                    mNewsListAdapter.clear();
-
-                    showProgressBar();
+                    mSubmittedQuery = getQuery();
+                    if (mShownNews.isEmpty()) {
+                        showProgressBar();
+                    }
                     restartLoader();
 
                     return true;
@@ -135,77 +249,440 @@ public class MainActivity extends AppCompatActivity implements LoaderManager
             }
         });
 
-        scheduleNewsUpdate();
+        // Searches as the user types, locally right away and remotely once the typing pauses
+        mEditQuery.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (getQuery().equals(mFeed.getQuery())) {
+                    return;
+                }
+
+                showNews();
+                if (mShownNews.isEmpty()) {
+                    showProgressBar();
+                }
+                restartLoader();
+            }
+        });
+
+        mFeed.observe(this);
+
+        // The settings are usually read before the first frame, which then shows the snapshot
+        final boolean coldStart = mFeed.getQuery() == null && savedInstanceState == null;
+        mSettingsLoadedRunnable = new Runnable() {
+            @Override
+            public void run() {
+                onSettingsLoaded(coldStart);
+            }
+        };
+        mSettings.whenLoaded(mSettingsLoadedRunnable);
+
+        // Attaches to the next page still loading when the configuration changed
+        if (mFeed.isLoadingNextPage()) {
+            if (getSupportLoaderManager().getLoader(NEXT_PAGE_LOADER_ID) != null) {
+                getSupportLoaderManager().initLoader(NEXT_PAGE_LOADER_ID, null, this);
+            } else {
+                mFeed.setLoadingNextPage(false);
+            }
+        }
+
+        final View content = findViewById(android.R.id.content);
+        content.getViewTreeObserver().addOnPreDrawListener(
+                new ViewTreeObserver.OnPreDrawListener() {
+                    @Override
+                    public boolean onPreDraw() {
+                        content.getViewTreeObserver().removeOnPreDrawListener(this);
+
+                        // Runs once the frame being prepared is drawn
+                        mReloadHandler.post(mFirstFrameRunnable);
+                        return true;
+                    }
+                });
+    }
+
+    /**
+     * Shows the news of last time on a cold start, then initializes or attaches to an existing
+     * loader, right away unless the snapshot fills the first frame.
+     */
+    private void onSettingsLoaded(boolean coldStart) {
+        if (coldStart) {
+            // The sections or authors muted since the snapshot was taken are left out
+            List<News> snapshot = new NewsPipeline(
+                    NewsPipeline.muteSections(mSettings.getMutedSections()),
+                    NewsPipeline.muteAuthors(mSettings.getMutedAuthors()))
+                    .process(FeedSnapshot.read(this, mSettings.getSections()));
+            if (!snapshot.isEmpty()) {
+                mShowingSnapshot = true;
+                mShownNews = snapshot;
+                mNewsListAdapter.submitList(mShownNews);
+                mLoadingIndicator.setVisibility(View.GONE);
+                updateEmptyView();
+            }
+        }
+
+        if (!mShowingSnapshot) {
+            getSupportLoaderManager().initLoader(NEWS_LOADER_ID, null, this);
+        }
+    }
+
+    private void onFirstFrame() {
+        Metrics.getInstance().record(Metrics.INITIAL_DISPLAY, System.nanoTime() - mCreateNanos);
+
+        mSettings.whenLoaded(mFinishStartupRunnable);
+    }
+
+    /**
+     * The initialization the first frame does not need: the sync schedule, the foreground
+     * refreshes and, behind the snapshot, the loader.
+     */
+    private void finishStartup() {
+        scheduleNewsSync();
+
+        // The first refresh comes one interval after the initial load, never along with it
+        mRefreshScheduler = new RefreshScheduler(mReloadHandler,
+                new RefreshScheduler.Callback() {
+                    @Override
+                    public void onRefresh() {
+                        refreshNews();
+                    }
+                }, getUpdateIntervalMillis(), mSettings.getPageSize() / 2);
+        if (mStarted) {
+            mRefreshScheduler.start();
+        }
+
+        mSettings.addListener(this);
+
+        if (mShowingSnapshot) {
+            getSupportLoaderManager().initLoader(NEWS_LOADER_ID, null, this);
+        }
+    }
+
+    /**
+     * Connects to the API in the background while the first frame is prepared, so the first
+     * request skips the DNS lookup and the handshakes.
+     */
+    private static void warmUpTransport() {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    QueryUtils.getTransport().warmUp(new URL(GuardianApi.getBaseUrl()));
+                } catch (IOException e) {
+                    Log.d(TAG, "Problem warming up the transport", e);
+                }
+            }
+        }, "transport-warm-up").start();
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+
+        mStarted = true;
+        NetworkPolicy.getInstance().addListener(mNetworkListener);
+        if (mRefreshScheduler != null) {
+            // The network may have changed while the app was in the background
+            mRefreshScheduler.reset(getUpdateIntervalMillis());
+            mRefreshScheduler.start();
+        }
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+
+        // Nothing is refreshed while the app is in the background, the background sync
+        // takes over
+        mStarted = false;
+        NetworkPolicy.getInstance().removeListener(mNetworkListener);
+        if (mRefreshScheduler != null) {
+            mRefreshScheduler.stop();
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
 
-        SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
-        prefs.registerOnSharedPreferenceChangeListener(this);
+        mReloadHandler.removeCallbacks(mReloadRunnable);
+        mReloadHandler.removeCallbacks(mFirstFrameRunnable);
+        mSettings.cancelWhenLoaded(mSettingsLoadedRunnable);
+        mSettings.cancelWhenLoaded(mFinishStartupRunnable);
+        mSettings.cancelWhenLoaded(mReloadRunnable);
 
-        // Initializes or attaches to an existing loader
-        getSupportLoaderManager().initLoader(NEWS_LOADER_ID, null, this);
+        mFeed.removeObserver();
+        mSettings.removeListener(this);
     }
 
     @Override
     public Loader<List<News>> onCreateLoader(int id, Bundle args) {
-        String pageSize = getPreference(R.string.settings_page_size_key,
-                R.string.settings_page_size_default);
+        int page = args != null ? args.getInt(PAGE_ARG, 1) : 1;
+
+        // A slow network asks for smaller pages, without the thumbnails. The following pages
+        // keep the size of the first one, or they would skip or repeat news
+        NetworkPolicy networkPolicy = NetworkPolicy.getInstance();
+        networkPolicy.forgetStaleThroughput(System.currentTimeMillis());
+        int pageSize = page > 1 && mFeed.getPageSize() > 0 ? mFeed.getPageSize()
+                : networkPolicy.pageSize(mSettings.getPageSize());
+        String showFields = networkPolicy.showFields();
+
+        String query = getQuery();
+        Set<String> tags = mSettings.getSections();
+
+        // One request per section, fetched at the same time and merged newest first
+        List<String> urls = new ArrayList<>(tags.size());
+        for (String tag : tags) {
+            Uri.Builder uriBuilder = Uri.parse(GuardianApi.searchUrl())
+                    .buildUpon()
+                    .appendQueryParameter(GuardianApi.SHOW_FIELDS_PARAM, showFields)
+                    .appendQueryParameter(GuardianApi.API_KEY_PARAM, GuardianApi.API_KEY)
+                    .appendQueryParameter(GuardianApi.TAG_PARAM, tag)
+                    .appendQueryParameter(GuardianApi.ORDER_BY_PARAM, ORDER_BY_NEWEST)
+                    .appendQueryParameter(GuardianApi.USE_DATE_PARAM,
+                            GuardianApi.FIRST_PUBLICATION_DATE)
+                    .appendQueryParameter(GuardianApi.PAGE_SIZE_PARAM, String.valueOf(pageSize))
+                    .appendQueryParameter(GuardianApi.PAGE_PARAM, String.valueOf(page));
+
+            if (!"".equals(query)) {
+                uriBuilder.appendQueryParameter(GuardianApi.QUERY_PARAM, query);
+            }
+
+            urls.add(uriBuilder.build().toString());
+        }
 
-        Uri.Builder uriBuilder = Uri.parse(THE_GUARDIAN_NEWS_API_URL)
-                .buildUpon()
-                .appendQueryParameter(SHOW_FIELDS_PARAM, "headline,byline,firstPublicationDate")
-                .appendQueryParameter(API_KEY_PARAM, "36a7884f-b99c-41d7-9bbf-e94206c36fbd")
-                .appendQueryParameter(TAG_PARAM, "politics/politics")
-                .appendQueryParameter(PAGE_SIZE_PARAM, pageSize);
+        String cacheKey = NewsCache.keyFor(query, TextUtils.join(",", tags), pageSize, page);
 
-        if (!"".equals(mEditQuery.getText().toString())) {
-            uriBuilder.appendQueryParameter(QUERY_PARAM, mEditQuery.getText().toString());
+        // The background sync keeps the first page of the feed fresh, or of the last search
+        // submitted, not of every prefix typed on the way
+        if (page == 1 && ("".equals(query) || query.equals(mSubmittedQuery))) {
+            NewsSyncTask.setSyncRequest(this, urls, cacheKey, pageSize);
         }
 
-        return new NewsLoader(this, uriBuilder.build().toString());
+        return new NewsLoader(this, urls, query, cacheKey, page, pageSize);
     }
 
     @Override
     public void onLoadFinished(Loader<List<News>> loader, List<News> news) {
-        // Hides the ProgressBar and sets the no results text
+        // Hides the ProgressBar and sets the no results text, or why the fetch failed when
+        // there was nothing cached to show
+        NewsLoader newsLoader = (NewsLoader) loader;
         mLoadingIndicator.setVisibility(View.GONE);
-        mEmptyView.setText(R.string.no_results);
+        if (news == null || news.isEmpty()) {
+            mEmptyView.setText(emptyTextFor(newsLoader.getFailure()));
+        } else {
+            mEmptyView.setText(R.string.no_results);
+        }
+
+        if (newsLoader.getPage() == 1 && news != null && news == mFeed.getFirstPage()) {
+            // Delivered again after a configuration change, the news are already in the list
+            updateEmptyView();
+            return;
+        }
+
+        if (newsLoader.getPage() != 1) {
+            mFeed.setLoadingNextPage(false);
+
+            // A following page of a previous search
+            if (!newsLoader.getQuery().equals(mFeed.getQuery())) {
+                return;
+            }
+        } else if (!newsLoader.getQuery().equals(mFeed.getQuery())) {
+            // The first page of a new search replaces the news of the previous one
+            clearPages();
+            mFeed.setQuery(newsLoader.getQuery());
+        }
+
+        if (news == null) {
+            updateEmptyView();
+            return;
+        }
+
+        if (newsLoader.getPage() == 1 && mRefreshScheduler != null
+                && mRefreshScheduler.isRefreshing()) {
+            mRefreshScheduler.onRefreshed(mFeed.countNewNews(news));
+        }
+
+        if (newsLoader.getPage() == 1 && "".equals(newsLoader.getQuery()) && !news.isEmpty()) {
+            FeedSnapshot.write(this, mSettings.getSections(), news);
+        }
+
+        // Shown once the feed tells about its new news
+        mFeed.addPage(newsLoader.getPage(), newsLoader.getPageSize(), news);
+
+        if (newsLoader.getPage() == 1) {
+            // Once the new rows are laid out
+            mNewsListView.post(new Runnable() {
+                @Override
+                public void run() {
+                    prefetchVisibleArticles();
+                }
+            });
+        }
 
-        // Clears the last data and adds the new ones
-        mNewsListAdapter.clear();
-        if (news != null && !news.isEmpty()) {
-            mNewsListAdapter.addAll(news);
+        if (!mFullyDrawn && !news.isEmpty()) {
+            onFullyDrawn(newsLoader);
         }
     }
 
     @Override
     public void onLoaderReset(Loader<List<News>> loader) {
-        // Clear the data that will be released from the loader
-        mNewsListAdapter.clear();
+        // Clear the data that will be released from the loader, the following pages are
+        // released along with the first one
+        if (loader.getId() == NEWS_LOADER_ID) {
+            clearNews();
+        }
+    }
+
+    @Override
+    public void onNewsChanged(List<News> news) {
+        showNews();
+    }
+
+    @Override
+    public void onNewsClick(News news) {
+        // The reader shows the stored body, falling back to the network
+        startActivity(ArticleReaderActivity.newIntent(this, news));
+    }
+
+    /**
+     * Tells the system and the {@link Metrics} that the screen shows the loaded news.
+     */
+    private void onFullyDrawn(NewsLoader loader) {
+        mFullyDrawn = true;
+        Metrics.getInstance().record(Metrics.FULL_DISPLAY, System.nanoTime() - mCreateNanos);
+        Log.d(TAG, "Fully drawn with the news of page " + loader.getPage());
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+            reportFullyDrawn();
+        }
+    }
+
+    /**
+     * Stores the bodies of the first articles on screen, so opening them is instant and works
+     * offline. Only happens on an unmetered network, the articles on screen when it connects
+     * being prefetched then.
+     */
+    private void prefetchVisibleArticles() {
+        int count = NetworkPolicy.getInstance().articlePrefetchCount(PREFETCH_ARTICLE_COUNT);
+        int first = mLayoutManager.findFirstVisibleItemPosition();
+        int last = mLayoutManager.findLastVisibleItemPosition();
+        if (count == 0 || first == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        last = Math.min(Math.min(last, first + count - 1),
+                mNewsListAdapter.getItemCount() - 1);
+        List<String> urls = new ArrayList<>(last - first + 1);
+        for (int position = first; position <= last; position++) {
+            urls.add(mNewsListAdapter.getUrl(position));
+        }
+
+        ArticleStore.getInstance(this).prefetch(urls);
+    }
+
+    /**
+     * Shows the loaded news when they belong to the query being typed, followed by the news
+     * the local search index finds for it.
+     */
+    private void showNews() {
+        String query = getQuery();
+        List<News> news = mFeed.getNews();
+        boolean loadedMatch = query.equals(mFeed.getQuery());
+
+        List<News> localNews = Collections.emptyList();
+        if (!"".equals(query)) {
+            localNews = NewsSearchIndex.getInstance().search(query);
+        }
+
+        if (localNews.isEmpty()) {
+            mShownNews = loadedMatch ? news : Collections.<News>emptyList();
+        } else {
+            List<News> shownNews = new ArrayList<>(news.size() + localNews.size());
+            if (loadedMatch) {
+                shownNews.addAll(news);
+            }
+            for (News currentNews : localNews) {
+                if (!loadedMatch || !mFeed.isLoaded(currentNews.getUrl())) {
+                    shownNews.add(currentNews);
+                }
+            }
+            mShownNews = Collections.unmodifiableList(shownNews);
+        }
+
+        mNewsListAdapter.submitList(mShownNews);
+        updateEmptyView();
+    }
+
+    /**
+     * Removes all the news from the list, along with the following pages.
+     */
+    private void clearNews() {
+        getSupportLoaderManager().destroyLoader(NEXT_PAGE_LOADER_ID);
+        mFeed.clear();
+    }
+
+    private void clearPages() {
+        getSupportLoaderManager().destroyLoader(NEXT_PAGE_LOADER_ID);
+        mFeed.clearPages();
+    }
+
+    private String getQuery() {
+        return mEditQuery.getText().toString();
+    }
+
+    /**
+     * Shows the empty view when there are no news and nothing is loading.
+     */
+    private void updateEmptyView() {
+        boolean loading = mLoadingIndicator.getVisibility() == View.VISIBLE;
+        mEmptyView.setVisibility(mShownNews.isEmpty() && !loading ? View.VISIBLE : View.GONE);
     }
 
     @Override
-    public void onSaveInstanceState(Bundle outState, PersistableBundle outPersistentState) {
-        int currentPosition = mNewsListView.getFirstVisiblePosition();
-        outState.putInt(LIST_SCROLL_POSITION, currentPosition);
+    protected void onSaveInstanceState(Bundle outState) {
+        outState.putParcelable(LIST_STATE, mLayoutManager.onSaveInstanceState());
 
-        super.onSaveInstanceState(outState, outPersistentState);
+        super.onSaveInstanceState(outState);
     }
 
     @Override
-    public void onRestoreInstanceState(Bundle savedInstanceState,
-                                       PersistableBundle persistentState) {
-        super.onRestoreInstanceState(savedInstanceState, persistentState);
+    protected void onRestoreInstanceState(Bundle savedInstanceState) {
+        super.onRestoreInstanceState(savedInstanceState);
 
-        int savedPosition = savedInstanceState.getInt(LIST_SCROLL_POSITION);
-        mNewsListView.setSelection(savedPosition);
+        // Applied on the next layout, once the list holds the news kept by the feed
+        mLayoutManager.onRestoreInstanceState(savedInstanceState.getParcelable(LIST_STATE));
     }
 
     /**
-     * Work around pre-Froyo bugs in HTTP connection reuse.
+     * Returns the text telling why there are no news to show.
+     *
+     * @param failure why the last fetch failed, <code>null</code> when it succeeded
      */
-    private void disableConnectionReuseIfNecessary() {
+    private int emptyTextFor(NewsFetchException failure) {
+        if (!isInternetAvailable()) {
+            return R.string.no_internet_connection;
+        } else if (failure == null) {
+            return R.string.no_results;
+        }
 
-        if (Integer.parseInt(Build.VERSION.SDK) < Build.VERSION_CODES.FROYO) {
-            System.setProperty("http.keepAlive", "false");
+        switch (failure.getReason()) {
+            case NETWORK:
+            case TIMEOUT:
+                return R.string.news_unreachable;
+            case RATE_LIMITED:
+            case SERVER_ERROR:
+            case CIRCUIT_OPEN:
+                return R.string.news_unavailable;
+            default:
+                return R.string.news_failed;
         }
     }
 
@@ -245,40 +722,57 @@ public class MainActivity extends AppCompatActivity implements LoaderManager
         return super.onOptionsItemSelected(item);
     }
 
-    private String getPreference(@StringRes int key, @StringRes int defValue) {
-        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
-        return sharedPrefs.getString(getString(key), getString(defValue));
-    }
-
     @Override
-    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-        Log.i(TAG, key);
-
-        if (key.equals(getString(R.string.settings_page_size_key)) || key
-                .equals(getString(R.string.settings_update_interval_key))) {
-
-            // Reeschedules the updater
-            mUpdateScheduler.shutdown();
-            scheduleNewsUpdate();
+    public void onSettingsChanged(Set<String> keys) {
+        Log.i(TAG, "Settings changed: " + keys);
+
+        if (keys.contains(mSettings.getUpdateIntervalKey())) {
+            // Reeschedules the sync, and restarts the foreground refreshes from the new interval
+            scheduleNewsSync();
+            if (mRefreshScheduler != null) {
+                mRefreshScheduler.reset(getUpdateIntervalMillis());
+            }
+        }
 
-            // Reloads the data
-            mNewsListAdapter.clear();
+        // A burst of edits only reloads the data once
+        if (keys.contains(mSettings.getPageSizeKey())
+                || keys.contains(mSettings.getSectionsKey())
+                || keys.contains(mSettings.getMutedSectionsKey())
+                || keys.contains(mSettings.getMutedAuthorsKey())) {
+            clearNews();
             showProgressBar();
             restartLoader();
         }
     }
 
-    private void scheduleNewsUpdate() {
-        String updateInterval = getPreference(R.string.settings_update_interval_key, R.
-                string.settings_update_interval_default);
+    /**
+     * Schedules the background sync with the update interval from the settings, replacing the
+     * schedule of a different interval.
+     */
+    private void scheduleNewsSync() {
+        NewsSyncUtils.scheduleSync(this, mSettings.getUpdateInterval());
+    }
+
+    /**
+     * Returns the interval of the foreground refreshes: the one in the settings, longer on a
+     * metered or slow network.
+     */
+    private long getUpdateIntervalMillis() {
+        return NetworkPolicy.getInstance().refreshIntervalMillis(
+                TimeUnit.MINUTES.toMillis(mSettings.getUpdateInterval()));
+    }
 
-        mUpdateScheduler = Executors.newSingleThreadScheduledExecutor();
-        mUpdateScheduler.scheduleAtFixedRate
-                (new Runnable() {
-                    public void run() {
-                        restartLoader();
-                    }
-                }, 0, Integer.valueOf(updateInterval), TimeUnit.MINUTES);
+    /**
+     * Refreshes the first page from the network, unless it is already loading.
+     */
+    private void refreshNews() {
+        Loader<List<News>> loader = getSupportLoaderManager().getLoader(NEWS_LOADER_ID);
+        if (loader == null || !getQuery().equals(mFeed.getQuery())) {
+            mRefreshScheduler.postpone();
+            return;
+        }
+
+        loader.onContentChanged();
     }
 
     /**
@@ -289,7 +783,29 @@ public class MainActivity extends AppCompatActivity implements LoaderManager
         mLoadingIndicator.setVisibility(View.VISIBLE);
     }
 
+    /**
+     * Starts loading the page after the last one in the list, unless it is already loading or
+     * the last page was not full.
+     */
+    private void loadNextPage() {
+        if (mFeed.isLoadingNextPage() || !mFeed.hasMorePages()
+                || !getQuery().equals(mFeed.getQuery())) {
+            return;
+        }
+
+        mFeed.setLoadingNextPage(true);
+
+        Bundle args = new Bundle();
+        args.putInt(PAGE_ARG, mFeed.getCurrentPage() + 1);
+        getSupportLoaderManager().restartLoader(NEXT_PAGE_LOADER_ID, args, this);
+    }
+
+    /**
+     * Reloads the first page once no other reload was asked for during
+     * {@link #RELOAD_DEBOUNCE_MILLIS}.
+     */
     private void restartLoader() {
-        getSupportLoaderManager().restartLoader(NEWS_LOADER_ID, null, MainActivity.this);
+        mReloadHandler.removeCallbacks(mReloadRunnable);
+        mReloadHandler.postDelayed(mReloadRunnable, RELOAD_DEBOUNCE_MILLIS);
     }
 }
\ No newline at end of file
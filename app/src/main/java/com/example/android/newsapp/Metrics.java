@@ -0,0 +1,166 @@
+package com.example.android.newsapp;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency histograms of each stage of a fetch, and the counters and gauges around them, kept
+ * for the life of the process and shown by the {@link MetricsActivity}.
+ */
+final class Metrics {
+
+    // Stages of a request, as seen by the transport
+    static final String DNS = "dns";
+    static final String CONNECT = "connect";
+    static final String TLS = "tls";
+    static final String TIME_TO_FIRST_BYTE = "ttfb";
+
+    // Reading and parsing the body, which happen together on the same stream
+    static final String DOWNLOAD = "download";
+    static final String PARSE = "parse";
+
+    // A whole fetchNewsData call, and a whole load of the loader
+    static final String FETCH = "fetch";
+    static final String LOAD = "load";
+    static final String CACHE_READ = "cache_read";
+
+    // Binding a row of the news list, and decoding its thumbnail
+    static final String BIND = "bind";
+    static final String THUMBNAIL_DECODE = "thumbnail_decode";
+
+    // From the creation of the main screen to its first frame, and to the loaded news
+    static final String INITIAL_DISPLAY = "initial_display";
+    static final String FULL_DISPLAY = "full_display";
+
+    static final String BYTES = "bytes";
+    static final String RESULTS = "results";
+
+    // Attempts sent again after a transient failure
+    static final String RETRIES = "retries";
+
+    // First pages refreshed with only their new news, or fetched again whole
+    static final String SYNC_DELTA = "sync.delta";
+    static final String SYNC_FULL = "sync.full";
+
+    private static final String ERROR_PREFIX = "error.";
+
+    private static final Metrics sInstance = new Metrics();
+
+    // In the order of the stages, so the report reads like a request
+    private final Map<String, Histogram> mHistograms = new LinkedHashMap<>();
+
+    private final Map<String, AtomicLong> mCounters = new TreeMap<>();
+
+    private final Map<String, Double> mGauges = new TreeMap<>();
+
+    static Metrics getInstance() {
+        return sInstance;
+    }
+
+    private Metrics() {
+        for (String stage : new String[]{DNS, CONNECT, TLS, TIME_TO_FIRST_BYTE, DOWNLOAD, PARSE,
+                FETCH, CACHE_READ, LOAD, BIND, THUMBNAIL_DECODE, INITIAL_DISPLAY,
+                FULL_DISPLAY}) {
+            mHistograms.put(stage, new Histogram());
+        }
+    }
+
+    /**
+     * Returns the histogram of the given stage, which hot paths can keep to skip the lookup.
+     */
+    synchronized Histogram histogram(String stage) {
+        Histogram histogram = mHistograms.get(stage);
+        if (histogram == null) {
+            histogram = new Histogram();
+            mHistograms.put(stage, histogram);
+        }
+        return histogram;
+    }
+
+    void record(String stage, long nanos) {
+        histogram(stage).record(nanos);
+    }
+
+    synchronized void increment(String counter, long delta) {
+        AtomicLong value = mCounters.get(counter);
+        if (value == null) {
+            value = new AtomicLong();
+            mCounters.put(counter, value);
+        }
+        value.addAndGet(delta);
+    }
+
+    /**
+     * Counts a failed request of the given category, for example "timeout".
+     */
+    void recordError(String category) {
+        increment(ERROR_PREFIX + category, 1);
+    }
+
+    synchronized void setGauge(String name, double value) {
+        mGauges.put(name, value);
+    }
+
+    /**
+     * Clears every value, keeping the histograms handed out.
+     */
+    synchronized void reset() {
+        for (Histogram histogram : mHistograms.values()) {
+            histogram.reset();
+        }
+        mCounters.clear();
+        mGauges.clear();
+    }
+
+    /**
+     * Returns a human readable report of every value.
+     */
+    synchronized String report() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, Histogram> histogram : mHistograms.entrySet()) {
+            report.append(String.format(Locale.US, "%-10s %s%n", histogram.getKey(),
+                    histogram.getValue()));
+        }
+
+        report.append('\n');
+        for (Map.Entry<String, AtomicLong> counter : mCounters.entrySet()) {
+            report.append(counter.getKey()).append(' ').append(counter.getValue()).append('\n');
+        }
+
+        report.append('\n');
+        for (Map.Entry<String, Double> gauge : mGauges.entrySet()) {
+            report.append(String.format(Locale.US, "%s %.2f%n", gauge.getKey(),
+                    gauge.getValue()));
+        }
+
+        return report.toString();
+    }
+
+    /**
+     * Writes every value as CSV, one row per histogram, counter or gauge.
+     */
+    synchronized void writeCsv(Writer writer) throws IOException {
+        writer.write("type,name,count,mean_ms,min_ms,p50_ms,p90_ms,p99_ms,max_ms,value\n");
+        for (Map.Entry<String, Histogram> entry : mHistograms.entrySet()) {
+            Histogram histogram = entry.getValue();
+            writer.write(String.format(Locale.US,
+                    "histogram,%s,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%n", entry.getKey(),
+                    histogram.getCount(), histogram.getMeanMillis(),
+                    histogram.getMinMillis(), histogram.getPercentileMillis(50),
+                    histogram.getPercentileMillis(90), histogram.getPercentileMillis(99),
+                    histogram.getMaxMillis()));
+        }
+        for (Map.Entry<String, AtomicLong> counter : mCounters.entrySet()) {
+            writer.write("counter," + counter.getKey() + ",,,,,,,," + counter.getValue() + "\n");
+        }
+        for (Map.Entry<String, Double> gauge : mGauges.entrySet()) {
+            writer.write(String.format(Locale.US, "gauge,%s,,,,,,,,%.3f%n", gauge.getKey(),
+                    gauge.getValue()));
+        }
+    }
+}
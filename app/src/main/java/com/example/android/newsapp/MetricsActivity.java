@@ -0,0 +1,137 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.os.AsyncTask;
+import android.os.Bundle;
+import android.support.v7.app.AppCompatActivity;
+import android.util.Log;
+import android.view.Menu;
+import android.view.MenuItem;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import butterknife.BindView;
+import butterknife.ButterKnife;
+
+/**
+ * Debug screen showing the {@link Metrics} collected since the app started, which can be
+ * exported as CSV to the app directory of the external storage.
+ */
+public class MetricsActivity extends AppCompatActivity {
+
+    private static final String TAG = "MetricsActivity";
+
+    @BindView(R.id.metrics_report)
+    TextView mReport;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_metrics);
+
+        ButterKnife.bind(this);
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+
+        showReport();
+    }
+
+    @Override
+    public boolean onCreateOptionsMenu(Menu menu) {
+        getMenuInflater().inflate(R.menu.metrics, menu);
+
+        return true;
+    }
+
+    @Override
+    public boolean onOptionsItemSelected(MenuItem item) {
+        int id = item.getItemId();
+
+        if (id == R.id.action_refresh_metrics) {
+            showReport();
+            return true;
+        } else if (id == R.id.action_export_metrics) {
+            new ExportTask(getApplicationContext()).execute();
+            return true;
+        } else if (id == R.id.action_reset_metrics) {
+            Metrics.getInstance().reset();
+            showReport();
+            return true;
+        }
+
+        return super.onOptionsItemSelected(item);
+    }
+
+    private void showReport() {
+        mReport.setText(Metrics.getInstance().report()
+                + "\nHTTP cache: " + HttpCache.getInstance()
+                + "\nCoordinator: " + FetchCoordinator.getInstance()
+                + "\nTransport: " + QueryUtils.getTransport());
+    }
+
+    /**
+     * Writes the metrics to a new CSV file, named after the time of the export.
+     */
+    private static class ExportTask extends AsyncTask<Void, Void, File> {
+
+        private final Context mContext;
+
+        ExportTask(Context context) {
+            mContext = context;
+        }
+
+        @Override
+        protected File doInBackground(Void... params) {
+            File directory = mContext.getExternalFilesDir(null);
+            if (directory == null) {
+                // No external storage mounted
+                directory = mContext.getFilesDir();
+            }
+
+            String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US)
+                    .format(new Date());
+            File file = new File(directory, "metrics-" + timestamp + ".csv");
+
+            Writer writer = null;
+            try {
+                writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+                Metrics.getInstance().writeCsv(writer);
+                return file;
+            } catch (IOException e) {
+                Log.e(TAG, "Problem exporting the metrics", e);
+                return null;
+            } finally {
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } catch (IOException e) {
+                        Log.e(TAG, "Problem closing the metrics file", e);
+                    }
+                }
+            }
+        }
+
+        @Override
+        protected void onPostExecute(File file) {
+            if (file != null) {
+                Toast.makeText(mContext, mContext.getString(R.string.metrics_exported,
+                        file.getAbsolutePath()), Toast.LENGTH_LONG).show();
+            } else {
+                Toast.makeText(mContext, R.string.metrics_export_failed, Toast.LENGTH_LONG)
+                        .show();
+            }
+        }
+    }
+}
@@ -0,0 +1,382 @@
+package com.example.android.newsapp;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.net.ConnectivityManagerCompat;
+import android.telephony.TelephonyManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shapes the requests after the network the device is on: its type, told by the connectivity
+ * changes, and its throughput, measured on the recent fetches. A slow network asks for smaller
+ * pages without thumbnails and refreshes less often, and the articles are only prefetched on
+ * an unmetered network. The throughput measured goes stale after a while, so a network found
+ * slow is probed again with the full requests. The bytes and the fetch latencies are recorded
+ * per network class, so the savings show in the {@link Metrics}.
+ */
+final class NetworkPolicy {
+
+    private static final String TAG = "NetworkPolicy";
+
+    /**
+     * How much the network can be asked for, from the least to the most
+     */
+    enum NetworkClass {
+        OFFLINE, SLOW, METERED, UNMETERED;
+
+        /**
+         * Returns the suffix of the metrics recorded on this class of network.
+         */
+        String metricName() {
+            return name().toLowerCase(Locale.US);
+        }
+    }
+
+    /**
+     * Told on the main thread when the network class changes
+     */
+    interface Listener {
+        void onNetworkClassChanged(NetworkClass networkClass);
+    }
+
+    // The fields every request asks for, and the thumbnail the fast networks also get
+    static final String BASE_FIELDS = "headline,byline,firstPublicationDate";
+    static final String THUMBNAIL_FIELD = "thumbnail";
+
+    // A slow network never gets smaller pages than this
+    static final int MIN_PAGE_SIZE = 5;
+
+    // Below this throughput a network counts as slow, in bytes per second
+    static final long SLOW_BYTES_PER_SECOND = 32 * 1024;
+
+    // Smaller responses mostly measure the latency, not the throughput
+    static final long MIN_SAMPLE_BYTES = 2048;
+
+    // The weight of the last fetch in the throughput estimate
+    private static final double SMOOTHING = 0.3;
+
+    // The throughput measured longer ago than this is forgotten, in milliseconds
+    static final long MAX_SAMPLE_AGE_MILLIS = 5 * 60 * 1000;
+
+    private static final NetworkPolicy sInstance = new NetworkPolicy();
+
+    // The type of the active network, as told by the last connectivity change
+    private NetworkClass mTypeClass = NetworkClass.UNMETERED;
+
+    // The class of the network, its type downgraded when it measures slow
+    private NetworkClass mNetworkClass = NetworkClass.UNMETERED;
+
+    // The throughput measured on the current network, in bytes per second, 0 before any fetch
+    private double mBytesPerSecond;
+
+    // When the throughput was last measured, in milliseconds
+    private long mMeasuredAt;
+
+    // The bytes of all the news responses received, on any network
+    private long mBytesReceived;
+
+    private final List<Listener> mListeners = new ArrayList<>();
+
+    // Set by watch(), the listeners are told on the main thread
+    private Handler mMainHandler;
+
+    private BroadcastReceiver mConnectivityReceiver;
+
+    static NetworkPolicy getInstance() {
+        return sInstance;
+    }
+
+    NetworkPolicy() {
+    }
+
+    /**
+     * Starts following the connectivity changes, once for the process. Must be called on the
+     * main thread.
+     */
+    synchronized void watch(Context context) {
+        if (mConnectivityReceiver != null) {
+            return;
+        }
+
+        final Context appContext = context.getApplicationContext();
+        mMainHandler = new Handler(Looper.getMainLooper());
+        mConnectivityReceiver = new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                onConnectivityChanged(appContext);
+            }
+        };
+
+        // Delivers the current state right away, as it is a sticky broadcast
+        appContext.registerReceiver(mConnectivityReceiver,
+                new IntentFilter(ConnectivityManager.CONNECTIVITY_ACTION));
+        onConnectivityChanged(appContext);
+    }
+
+    synchronized void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    synchronized void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    synchronized NetworkClass getNetworkClass() {
+        return mNetworkClass;
+    }
+
+    /**
+     * Returns the throughput measured on the current network, in bytes per second, or 0 before
+     * any fetch.
+     */
+    synchronized double getBytesPerSecond() {
+        return mBytesPerSecond;
+    }
+
+    /**
+     * Returns the page size to ask for, the one in the settings unless the network is slow.
+     */
+    synchronized int pageSize(int preferredPageSize) {
+        if (mNetworkClass == NetworkClass.SLOW) {
+            return Math.min(preferredPageSize, Math.max(MIN_PAGE_SIZE, preferredPageSize / 2));
+        }
+        return preferredPageSize;
+    }
+
+    /**
+     * Returns the show-fields of the news requests, without the thumbnails on a slow network,
+     * since each of them is another download.
+     */
+    synchronized String showFields() {
+        return mNetworkClass == NetworkClass.SLOW ? BASE_FIELDS
+                : BASE_FIELDS + "," + THUMBNAIL_FIELD;
+    }
+
+    /**
+     * Returns how many of the articles on screen have their body prefetched, none until the
+     * network is unmetered.
+     */
+    synchronized int articlePrefetchCount(int preferredCount) {
+        return mNetworkClass == NetworkClass.UNMETERED ? preferredCount : 0;
+    }
+
+    /**
+     * Returns how close to the end of the list the next page starts loading, in rows, half
+     * as close on a slow network where a page may never be looked at.
+     */
+    synchronized int pagePrefetchDistance(int preferredDistance) {
+        return mNetworkClass == NetworkClass.SLOW ? preferredDistance / 2 : preferredDistance;
+    }
+
+    /**
+     * Returns the interval of the foreground refreshes, the one in the settings doubled on a
+     * metered network and quadrupled on a slow one.
+     */
+    synchronized long refreshIntervalMillis(long preferredMillis) {
+        switch (mNetworkClass) {
+            case SLOW:
+                return preferredMillis * 4;
+            case METERED:
+                return preferredMillis * 2;
+            default:
+                return preferredMillis;
+        }
+    }
+
+    /**
+     * Records a news response of the given size in the metrics of the current network.
+     */
+    void recordBytes(long bytes) {
+        NetworkClass networkClass;
+        synchronized (this) {
+            networkClass = mNetworkClass;
+            mBytesReceived += bytes;
+        }
+
+        Metrics.getInstance().increment(Metrics.BYTES + "." + networkClass.metricName(), bytes);
+    }
+
+    /**
+     * Returns the bytes of all the news responses received so far, which the difference of
+     * two calls measures a fetch with.
+     */
+    synchronized long getBytesReceived() {
+        return mBytesReceived;
+    }
+
+    /**
+     * Records a whole fetch, which received the given bytes in the given wall-clock time, in
+     * the throughput of the current network.
+     *
+     * @param now the current time in milliseconds
+     */
+    void recordThroughput(long bytes, long elapsedNanos, long now) {
+        List<Listener> listeners = null;
+        synchronized (this) {
+            if (bytes < MIN_SAMPLE_BYTES || elapsedNanos <= 0) {
+                return;
+            }
+
+            double bytesPerSecond = bytes * (double) TimeUnit.SECONDS.toNanos(1)
+                    / elapsedNanos;
+            mBytesPerSecond = mBytesPerSecond == 0 ? bytesPerSecond
+                    : SMOOTHING * bytesPerSecond + (1 - SMOOTHING) * mBytesPerSecond;
+            mMeasuredAt = now;
+            if (updateNetworkClass()) {
+                listeners = new ArrayList<>(mListeners);
+            }
+        }
+
+        Metrics.getInstance().setGauge("throughput_kbps", getBytesPerSecond() / 1024);
+
+        if (listeners != null) {
+            notifyListeners(listeners);
+        }
+    }
+
+    /**
+     * Forgets the throughput measured longer ago than {@link #MAX_SAMPLE_AGE_MILLIS}. A slow
+     * network asks for small pages, which may be too small to measure it again, so this is
+     * what lets it recover: the next requests are shaped after the type alone, and measure it
+     * afresh. Called before shaping the requests.
+     *
+     * @param now the current time in milliseconds
+     */
+    void forgetStaleThroughput(long now) {
+        List<Listener> listeners = null;
+        synchronized (this) {
+            if (mBytesPerSecond == 0 || now - mMeasuredAt <= MAX_SAMPLE_AGE_MILLIS) {
+                return;
+            }
+
+            mBytesPerSecond = 0;
+            if (updateNetworkClass()) {
+                listeners = new ArrayList<>(mListeners);
+            }
+        }
+
+        if (listeners != null) {
+            notifyListeners(listeners);
+        }
+    }
+
+    /**
+     * Records how long a fetch took on the current network.
+     */
+    void recordFetch(long nanos) {
+        Metrics.getInstance().record(Metrics.FETCH + "." + getNetworkClass().metricName(),
+                nanos);
+    }
+
+    /**
+     * Sets the type of the active network, forgetting the throughput measured on the previous
+     * one.
+     *
+     * @param slowType whether the type itself is known to be slow, like 2G
+     */
+    void setNetworkType(boolean connected, boolean metered, boolean slowType) {
+        List<Listener> listeners = null;
+        synchronized (this) {
+            if (!connected) {
+                mTypeClass = NetworkClass.OFFLINE;
+            } else if (slowType) {
+                mTypeClass = NetworkClass.SLOW;
+            } else {
+                mTypeClass = metered ? NetworkClass.METERED : NetworkClass.UNMETERED;
+            }
+
+            mBytesPerSecond = 0;
+            if (updateNetworkClass()) {
+                listeners = new ArrayList<>(mListeners);
+            }
+        }
+
+        if (listeners != null) {
+            notifyListeners(listeners);
+        }
+    }
+
+    private void onConnectivityChanged(Context context) {
+        ConnectivityManager connMgr = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+
+        boolean connected = networkInfo != null && networkInfo.isConnected();
+        setNetworkType(connected,
+                connected && ConnectivityManagerCompat.isActiveNetworkMetered(connMgr),
+                connected && isSlowType(networkInfo));
+    }
+
+    /**
+     * Whether the network is a mobile one of the 2G generation.
+     */
+    private static boolean isSlowType(NetworkInfo networkInfo) {
+        if (networkInfo.getType() != ConnectivityManager.TYPE_MOBILE) {
+            return false;
+        }
+
+        switch (networkInfo.getSubtype()) {
+            case TelephonyManager.NETWORK_TYPE_GPRS:
+            case TelephonyManager.NETWORK_TYPE_EDGE:
+            case TelephonyManager.NETWORK_TYPE_CDMA:
+            case TelephonyManager.NETWORK_TYPE_1xRTT:
+            case TelephonyManager.NETWORK_TYPE_IDEN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Derives the class from the type and the throughput.
+     *
+     * @return whether the class changed
+     */
+    private boolean updateNetworkClass() {
+        NetworkClass networkClass = mTypeClass;
+        if (networkClass != NetworkClass.OFFLINE && mBytesPerSecond > 0
+                && mBytesPerSecond < SLOW_BYTES_PER_SECOND) {
+            networkClass = NetworkClass.SLOW;
+        }
+
+        if (networkClass == mNetworkClass) {
+            return false;
+        }
+
+        Log.i(TAG, "Network " + mNetworkClass + " -> " + networkClass + String.format(
+                Locale.US, ", %.1f KB/s", mBytesPerSecond / 1024));
+        mNetworkClass = networkClass;
+        return true;
+    }
+
+    private void notifyListeners(final List<Listener> listeners) {
+        final NetworkClass networkClass = getNetworkClass();
+        Handler mainHandler;
+        synchronized (this) {
+            mainHandler = mMainHandler;
+        }
+        if (mainHandler == null) {
+            return;
+        }
+
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (Listener listener : listeners) {
+                    listener.onNetworkClassChanged(networkClass);
+                }
+            }
+        });
+    }
+}
@@ -7,19 +7,61 @@ import android.support.annotation.NonNull;
  */
 class News {
 
+    // The date of the news without a publication date
+    static final long NO_DATE = Long.MIN_VALUE;
+
     private final String mTitle;
     private final String mSection;
     private final String mAuthor;
-    private final String mDate;
+    private final long mDate;
     private final String mUrl;
 
+    // The URL of the thumbnail, null when the news has none
+    private final String mThumbnail;
+
+    // The text shown in the list, built by the NewsFormatter
+    private final CharSequence mDisplayAuthor;
+    private final CharSequence mDisplayDate;
+    private final boolean mFormatted;
+
+    /**
+     * @param mDate the first publication date in epoch milliseconds, or {@link #NO_DATE}
+     */
+    News(String mTitle, String mSection, String mUrl, String mAuthor,
+        long mDate) {
+        this(mTitle, mSection, mUrl, mAuthor, mDate, null);
+    }
+
+    /**
+     * @param mDate      the first publication date in epoch milliseconds, or {@link #NO_DATE}
+     * @param mThumbnail the URL of the thumbnail, or <code>null</code>
+     */
     News(String mTitle, String mSection, String mUrl, String mAuthor,
-        String mDate) {
+        long mDate, String mThumbnail) {
         this.mTitle = mTitle;
         this.mSection = mSection;
         this.mUrl = mUrl;
         this.mAuthor = mAuthor;
         this.mDate = mDate;
+        this.mThumbnail = mThumbnail;
+        this.mDisplayAuthor = null;
+        this.mDisplayDate = null;
+        this.mFormatted = false;
+    }
+
+    /**
+     * Copies the given news along with its display text.
+     */
+    News(@NonNull News news, CharSequence mDisplayAuthor, CharSequence mDisplayDate) {
+        this.mTitle = news.mTitle;
+        this.mSection = news.mSection;
+        this.mUrl = news.mUrl;
+        this.mAuthor = news.mAuthor;
+        this.mDate = news.mDate;
+        this.mThumbnail = news.mThumbnail;
+        this.mDisplayAuthor = mDisplayAuthor;
+        this.mDisplayDate = mDisplayDate;
+        this.mFormatted = true;
     }
 
     public String getTitle() {
@@ -34,11 +76,27 @@ class News {
         return mAuthor;
     }
 
-    public String getDate() {
+    public long getDate() {
         return mDate;
     }
 
     public String getUrl() {
         return mUrl;
     }
+
+    public String getThumbnail() {
+        return mThumbnail;
+    }
+
+    public CharSequence getDisplayAuthor() {
+        return mDisplayAuthor;
+    }
+
+    public CharSequence getDisplayDate() {
+        return mDisplayDate;
+    }
+
+    public boolean isFormatted() {
+        return mFormatted;
+    }
 }
@@ -0,0 +1,185 @@
+package com.example.android.newsapp;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import com.example.android.newsapp.NewsContract.NewsEntry;
+import com.example.android.newsapp.NewsContract.WatermarkEntry;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores the parsed news on disk, keyed by query, tag and page size. Must be used off the main
+ * thread.
+ */
+class NewsCache {
+
+    // How many result lists are kept
+    private static final int MAX_QUERIES = 20;
+
+    // How long a result list is kept
+    private static final long MAX_AGE_MILLIS = TimeUnit.DAYS.toMillis(7);
+
+    private static final String[] NEWS_COLUMNS = {
+            NewsEntry.COLUMN_TITLE,
+            NewsEntry.COLUMN_SECTION,
+            NewsEntry.COLUMN_URL,
+            NewsEntry.COLUMN_AUTHOR,
+            NewsEntry.COLUMN_DATE,
+            NewsEntry.COLUMN_THUMBNAIL
+    };
+
+    private final NewsDbHelper mDbHelper;
+
+    NewsCache(Context context) {
+        mDbHelper = NewsDbHelper.getInstance(context);
+    }
+
+    /**
+     * Builds the key under which the news of a request are stored.
+     */
+    static String keyFor(String query, String tag, int pageSize, int page) {
+        return tag + "|" + pageSize + "|" + page + "|" + query;
+    }
+
+    /**
+     * Returns the stored news for the given key, or an empty list when there are none.
+     */
+    List<News> get(String key) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+
+        Cursor cursor = db.query(NewsEntry.TABLE_NAME, NEWS_COLUMNS,
+                NewsEntry.COLUMN_QUERY_KEY + " = ? AND " + NewsEntry.COLUMN_CACHED_AT + " > ?",
+                new String[]{key, String.valueOf(System.currentTimeMillis() - MAX_AGE_MILLIS)},
+                null, null, NewsEntry.COLUMN_POSITION);
+        try {
+            if (cursor.getCount() == 0) {
+                return Collections.emptyList();
+            }
+
+            StringPool pool = StringPool.getShared();
+            List<News> news = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext()) {
+                long date = cursor.isNull(4) ? News.NO_DATE : cursor.getLong(4);
+                news.add(new News(cursor.getString(0), pool.intern(cursor.getString(1)),
+                        cursor.getString(2), pool.intern(cursor.getString(3)), date,
+                        cursor.getString(5)));
+            }
+            return news;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns the watermarks stored for the given key, by tag, in a map that can be modified.
+     */
+    Map<String, Long> getWatermarks(String key) {
+        SQLiteDatabase db = mDbHelper.getReadableDatabase();
+
+        Cursor cursor = db.query(WatermarkEntry.TABLE_NAME,
+                new String[]{WatermarkEntry.COLUMN_TAG, WatermarkEntry.COLUMN_DATE},
+                WatermarkEntry.COLUMN_QUERY_KEY + " = ?", new String[]{key}, null, null, null);
+        try {
+            Map<String, Long> watermarks = new HashMap<>(cursor.getCount() * 2);
+            while (cursor.moveToNext()) {
+                watermarks.put(cursor.getString(0), cursor.getLong(1));
+            }
+            return watermarks;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Replaces the stored news for the given key, dropping its watermarks.
+     */
+    void put(String key, List<News> news) {
+        put(key, news, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * Replaces the stored news for the given key along with their watermarks, then evicts the
+     * expired and the least recently stored result lists.
+     *
+     * @param watermarks the newest first publication date fetched from each tag
+     */
+    void put(String key, List<News> news, Map<String, Long> watermarks) {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        long now = System.currentTimeMillis();
+
+        db.beginTransaction();
+        try {
+            db.delete(NewsEntry.TABLE_NAME, NewsEntry.COLUMN_QUERY_KEY + " = ?",
+                    new String[]{key});
+            db.delete(WatermarkEntry.TABLE_NAME, WatermarkEntry.COLUMN_QUERY_KEY + " = ?",
+                    new String[]{key});
+
+            ContentValues values = new ContentValues();
+            for (int i = 0; i < news.size(); i++) {
+                News currentNews = news.get(i);
+
+                values.clear();
+                values.put(NewsEntry.COLUMN_QUERY_KEY, key);
+                values.put(NewsEntry.COLUMN_POSITION, i);
+                values.put(NewsEntry.COLUMN_TITLE, currentNews.getTitle());
+                values.put(NewsEntry.COLUMN_SECTION, currentNews.getSection());
+                values.put(NewsEntry.COLUMN_URL, currentNews.getUrl());
+                values.put(NewsEntry.COLUMN_AUTHOR, currentNews.getAuthor());
+                if (currentNews.getDate() != News.NO_DATE) {
+                    values.put(NewsEntry.COLUMN_DATE, currentNews.getDate());
+                }
+                values.put(NewsEntry.COLUMN_THUMBNAIL, currentNews.getThumbnail());
+                values.put(NewsEntry.COLUMN_CACHED_AT, now);
+                db.insert(NewsEntry.TABLE_NAME, null, values);
+            }
+
+            for (Map.Entry<String, Long> watermark : watermarks.entrySet()) {
+                values.clear();
+                values.put(WatermarkEntry.COLUMN_QUERY_KEY, key);
+                values.put(WatermarkEntry.COLUMN_TAG, watermark.getKey());
+                values.put(WatermarkEntry.COLUMN_DATE, watermark.getValue());
+                db.insert(WatermarkEntry.TABLE_NAME, null, values);
+            }
+
+            evict(db, now);
+
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Deletes all the stored news.
+     */
+    void clear() {
+        SQLiteDatabase db = mDbHelper.getWritableDatabase();
+        db.delete(NewsEntry.TABLE_NAME, null, null);
+        db.delete(WatermarkEntry.TABLE_NAME, null, null);
+    }
+
+    private void evict(SQLiteDatabase db, long now) {
+        db.delete(NewsEntry.TABLE_NAME, NewsEntry.COLUMN_CACHED_AT + " <= ?",
+                new String[]{String.valueOf(now - MAX_AGE_MILLIS)});
+
+        // Every row of a result list has the same cached_at, so the newest lists come first
+        db.execSQL("DELETE FROM " + NewsEntry.TABLE_NAME + " WHERE "
+                + NewsEntry.COLUMN_QUERY_KEY + " NOT IN (SELECT " + NewsEntry.COLUMN_QUERY_KEY
+                + " FROM " + NewsEntry.TABLE_NAME + " GROUP BY " + NewsEntry.COLUMN_QUERY_KEY
+                + " ORDER BY MAX(" + NewsEntry.COLUMN_CACHED_AT + ") DESC LIMIT " + MAX_QUERIES
+                + ")");
+
+        // The watermarks go along with their result list
+        db.execSQL("DELETE FROM " + WatermarkEntry.TABLE_NAME + " WHERE "
+                + WatermarkEntry.COLUMN_QUERY_KEY + " NOT IN (SELECT DISTINCT "
+                + NewsEntry.COLUMN_QUERY_KEY + " FROM " + NewsEntry.TABLE_NAME + ")");
+    }
+}
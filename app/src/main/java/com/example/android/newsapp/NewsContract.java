@@ -0,0 +1,61 @@
+package com.example.android.newsapp;
+
+import android.provider.BaseColumns;
+
+/**
+ * Contract of the local database that caches the news
+ */
+final class NewsContract {
+
+    private NewsContract() {
+    }
+
+    /**
+     * Each row is one news of the result list stored for a query
+     */
+    static final class NewsEntry implements BaseColumns {
+
+        static final String TABLE_NAME = "news";
+
+        // The key built from the query, the tag and the page size
+        static final String COLUMN_QUERY_KEY = "query_key";
+
+        // The position of the news inside the result list
+        static final String COLUMN_POSITION = "position";
+
+        static final String COLUMN_TITLE = "title";
+        static final String COLUMN_SECTION = "section";
+        static final String COLUMN_URL = "url";
+        static final String COLUMN_AUTHOR = "author";
+        // The first publication date in epoch milliseconds, null when unknown
+        static final String COLUMN_DATE = "date";
+        // The URL of the thumbnail, null when the news has none
+        static final String COLUMN_THUMBNAIL = "thumbnail";
+
+        // When the result list was stored, in milliseconds
+        static final String COLUMN_CACHED_AT = "cached_at";
+
+        private NewsEntry() {
+        }
+    }
+
+    /**
+     * Each row is the newest first publication date fetched from one tag of a result list,
+     * from which the next refresh of that tag starts
+     */
+    static final class WatermarkEntry implements BaseColumns {
+
+        static final String TABLE_NAME = "watermark";
+
+        // The key of the result list, as in the news table
+        static final String COLUMN_QUERY_KEY = "query_key";
+
+        static final String COLUMN_TAG = "tag";
+
+        // In epoch milliseconds
+        static final String COLUMN_DATE = "date";
+
+        private WatermarkEntry() {
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+import com.example.android.newsapp.NewsContract.NewsEntry;
+import com.example.android.newsapp.NewsContract.WatermarkEntry;
+
+/**
+ * Creates and upgrades the local news database
+ */
+class NewsDbHelper extends SQLiteOpenHelper {
+
+    private static final String DATABASE_NAME = "news.db";
+
+    private static final int DATABASE_VERSION = 4;
+
+    private static NewsDbHelper sInstance;
+
+    static synchronized NewsDbHelper getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new NewsDbHelper(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    private NewsDbHelper(Context context) {
+        super(context, DATABASE_NAME, null, DATABASE_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + NewsEntry.TABLE_NAME + " ("
+                + NewsEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + NewsEntry.COLUMN_QUERY_KEY + " TEXT NOT NULL, "
+                + NewsEntry.COLUMN_POSITION + " INTEGER NOT NULL, "
+                + NewsEntry.COLUMN_TITLE + " TEXT NOT NULL, "
+                + NewsEntry.COLUMN_SECTION + " TEXT NOT NULL, "
+                + NewsEntry.COLUMN_URL + " TEXT NOT NULL, "
+                + NewsEntry.COLUMN_AUTHOR + " TEXT, "
+                + NewsEntry.COLUMN_DATE + " INTEGER, "
+                + NewsEntry.COLUMN_THUMBNAIL + " TEXT, "
+                + NewsEntry.COLUMN_CACHED_AT + " INTEGER NOT NULL);");
+
+        db.execSQL("CREATE INDEX news_query_key_index ON " + NewsEntry.TABLE_NAME + " ("
+                + NewsEntry.COLUMN_QUERY_KEY + ", " + NewsEntry.COLUMN_POSITION + ");");
+
+        db.execSQL("CREATE TABLE " + WatermarkEntry.TABLE_NAME + " ("
+                + WatermarkEntry._ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+                + WatermarkEntry.COLUMN_QUERY_KEY + " TEXT NOT NULL, "
+                + WatermarkEntry.COLUMN_TAG + " TEXT NOT NULL, "
+                + WatermarkEntry.COLUMN_DATE + " INTEGER NOT NULL, "
+                + "UNIQUE (" + WatermarkEntry.COLUMN_QUERY_KEY + ", " + WatermarkEntry.COLUMN_TAG
+                + "));");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The database is only a cache, so it is simply recreated
+        db.execSQL("DROP TABLE IF EXISTS " + NewsEntry.TABLE_NAME);
+        db.execSQL("DROP TABLE IF EXISTS " + WatermarkEntry.TABLE_NAME);
+        onCreate(db);
+    }
+}
@@ -0,0 +1,261 @@
+package com.example.android.newsapp;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fetches the news of several sections at the same time and merges them into one feed, newest
+ * first. A section that fails or times out is left out without affecting the others, and the
+ * fetch only fails when every section does.
+ */
+final class NewsFeedFetcher {
+
+    private static final String TAG = "NewsFeedFetcher";
+
+    // How many sections are fetched at the same time
+    private static final int MAX_CONCURRENT_FETCHES = 4;
+
+    // How long a section may take from its start before it is left out, in milliseconds
+    private static final long SECTION_TIMEOUT_MILLIS = 20000;
+
+    private static final ExecutorService sExecutor;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_CONCURRENT_FETCHES,
+                MAX_CONCURRENT_FETCHES, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        sExecutor = executor;
+    }
+
+    // Newest first, the news without a date last
+    private static final Comparator<Head> NEWEST_FIRST = new Comparator<Head>() {
+        @Override
+        public int compare(Head first, Head second) {
+            long firstDate = first.current().getDate();
+            long secondDate = second.current().getDate();
+            return firstDate < secondDate ? 1 : (firstDate == secondDate ? 0 : -1);
+        }
+    };
+
+    private NewsFeedFetcher() {
+    }
+
+    /**
+     * Fetches the news of every URL, one per section, and merges them.
+     *
+     * @param channel the fetch coordinator channel of the caller, each section using its own
+     *                channel derived from it; <code>null</code> when never superseded
+     * @throws NewsFetchException the failure of the first section, when no section succeeded
+     */
+    static List<News> fetch(List<String> urls, String channel) throws NewsFetchException {
+        List<List<News>> sections = new ArrayList<>(urls.size());
+        for (List<News> section : fetchSections(urls, channel)) {
+            if (section != null) {
+                sections.add(section);
+            }
+        }
+        return merge(sections, true);
+    }
+
+    /**
+     * Fetches the news of every URL, one per section, without merging them.
+     *
+     * @param channel the fetch coordinator channel of the caller, each section using its own
+     *                channel derived from it; <code>null</code> when never superseded
+     * @return the news of each section, in the order of the URLs, <code>null</code> for the
+     * sections that failed
+     * @throws NewsFetchException the failure of the first section, when no section succeeded
+     */
+    static List<List<News>> fetchSections(List<String> urls, String channel)
+            throws NewsFetchException {
+        // The throughput of the network is measured over the whole fetch, waits included,
+        // since that is what the user waits for
+        NetworkPolicy networkPolicy = NetworkPolicy.getInstance();
+        long bytes = networkPolicy.getBytesReceived();
+        long start = System.nanoTime();
+
+        List<List<News>> sections = fetchConcurrently(urls, channel);
+
+        networkPolicy.recordThroughput(networkPolicy.getBytesReceived() - bytes,
+                System.nanoTime() - start, System.currentTimeMillis());
+        return sections;
+    }
+
+    private static List<List<News>> fetchConcurrently(List<String> urls, final String channel)
+            throws NewsFetchException {
+        if (urls.size() == 1) {
+            return Collections.singletonList(
+                    FetchCoordinator.getInstance().fetch(urls.get(0), sectionChannel(channel, 0)));
+        }
+
+        // When each section started, so one queued behind the others gets its whole timeout
+        final AtomicLongArray startTimes = new AtomicLongArray(urls.size());
+        List<Future<List<News>>> futures = new ArrayList<>(urls.size());
+        for (int i = 0; i < urls.size(); i++) {
+            final int section = i;
+            final String url = urls.get(i);
+            final String sectionChannel = sectionChannel(channel, i);
+            futures.add(sExecutor.submit(new Callable<List<News>>() {
+                @Override
+                public List<News> call() throws NewsFetchException {
+                    startTimes.set(section, System.currentTimeMillis());
+                    return FetchCoordinator.getInstance().fetch(url, sectionChannel);
+                }
+            }));
+        }
+
+        List<List<News>> sections = new ArrayList<>(urls.size());
+        NewsFetchException failure = null;
+        int succeeded = 0;
+        for (int i = 0; i < futures.size(); i++) {
+            List<News> section = null;
+            try {
+                section = awaitSection(futures.get(i), startTimes, i);
+                succeeded++;
+            } catch (TimeoutException e) {
+                Log.w(TAG, "Section timed out " + urls.get(i));
+                if (channel != null) {
+                    FetchCoordinator.getInstance().cancel(sectionChannel(channel, i));
+                }
+                futures.get(i).cancel(true);
+                if (failure == null) {
+                    failure = new NewsFetchException(NewsFetchException.Reason.TIMEOUT,
+                            "Section timed out " + urls.get(i));
+                }
+            } catch (ExecutionException e) {
+                Log.e(TAG, "Section failed " + urls.get(i), e.getCause());
+                if (failure == null) {
+                    failure = e.getCause() instanceof NewsFetchException
+                            ? (NewsFetchException) e.getCause()
+                            : new NewsFetchException(NewsFetchException.Reason.NETWORK,
+                            "Section failed " + urls.get(i), e.getCause(), 0,
+                            NewsFetchException.NO_RETRY_AFTER);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new NewsFetchException(NewsFetchException.Reason.CANCELLED,
+                        "Interrupted while fetching the sections");
+            }
+            sections.add(section);
+        }
+
+        if (succeeded == 0 && failure != null) {
+            throw failure;
+        }
+
+        return sections;
+    }
+
+    /**
+     * Waits for a section until it took its timeout since it started, or since the wait began
+     * when it did not start before.
+     *
+     * @throws TimeoutException when the section took too long, or never started
+     */
+    private static List<News> awaitSection(Future<List<News>> future, AtomicLongArray startTimes,
+                                           int section)
+            throws TimeoutException, ExecutionException, InterruptedException {
+        long waitStart = System.currentTimeMillis();
+        while (true) {
+            long start = startTimes.get(section);
+            long deadline = (start != 0 ? start : waitStart) + SECTION_TIMEOUT_MILLIS;
+            long timeout = Math.max(0, deadline - System.currentTimeMillis());
+            try {
+                return future.get(timeout, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // Started while waiting, the section gets the rest of its own timeout
+                if (startTimes.get(section) == start) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops waiting for the sections of the given channel.
+     */
+    static void cancel(String channel, int sectionCount) {
+        for (int i = 0; i < sectionCount; i++) {
+            FetchCoordinator.getInstance().cancel(sectionChannel(channel, i));
+        }
+    }
+
+    /**
+     * Merges lists sorted newest first into one list sorted the same way.
+     *
+     * @param distinctUrls whether only the first news of each URL is kept
+     */
+    static List<News> merge(List<List<News>> sections, boolean distinctUrls) {
+        int size = 0;
+        PriorityQueue<Head> heads = new PriorityQueue<>(Math.max(1, sections.size()),
+                NEWEST_FIRST);
+        for (List<News> section : sections) {
+            size += section.size();
+            if (!section.isEmpty()) {
+                heads.add(new Head(section));
+            }
+        }
+
+        if (heads.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<News> merged = new ArrayList<>(size);
+        Set<String> urls = new HashSet<>(distinctUrls ? size : 0);
+        while (!heads.isEmpty()) {
+            Head head = heads.poll();
+            News news = head.current();
+            if (!distinctUrls || urls.add(news.getUrl())) {
+                merged.add(news);
+            }
+
+            if (head.next()) {
+                heads.add(head);
+            }
+        }
+
+        return merged;
+    }
+
+    private static String sectionChannel(String channel, int section) {
+        return channel != null ? channel + "/" + section : null;
+    }
+
+    /**
+     * The next news to merge from one section
+     */
+    private static final class Head {
+
+        private final List<News> mNews;
+        private int mPosition;
+
+        Head(List<News> news) {
+            mNews = news;
+        }
+
+        News current() {
+            return mNews.get(mPosition);
+        }
+
+        boolean next() {
+            return ++mPosition < mNews.size();
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.example.android.newsapp;
+
+import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Holds the news of the main screen and their pages across configuration changes, so the
+ * screen recreated by a rotation shows them again right away, without loading anything. Has
+ * no view, and is retained by the fragment manager of the activity, which observes the news.
+ */
+public class NewsFeedFragment extends Fragment {
+
+    private static final String TAG = "NewsFeedFragment";
+
+    /**
+     * Told on the main thread when the news change
+     */
+    interface Observer {
+
+        void onNewsChanged(List<News> news);
+    }
+
+    // The news loaded for mQuery, replaced by a new list on every change
+    private List<News> mNews = Collections.emptyList();
+
+    // The query the loaded news belong to, null when none were loaded
+    private String mQuery;
+
+    // The last first page added, which the loader delivers again to a recreated activity
+    private List<News> mFirstPage;
+
+    // The URLs of the loaded news, so a page never adds the same news twice
+    private final Set<String> mLoadedUrls = new HashSet<>();
+
+    // The last page added
+    private int mCurrentPage;
+
+    // The page size of the pages added, which the following pages keep
+    private int mPageSize;
+
+    // Whether the last page was full, so there may be another one
+    private boolean mHasMorePages;
+
+    // Whether the next page is being loaded
+    private boolean mLoadingNextPage;
+
+    // The activity showing the news, null between its destruction and its recreation
+    private Observer mObserver;
+
+    /**
+     * Returns the holder of the given activity, adding it the first time.
+     */
+    static NewsFeedFragment getInstance(FragmentManager fragmentManager) {
+        NewsFeedFragment fragment = (NewsFeedFragment) fragmentManager.findFragmentByTag(TAG);
+        if (fragment == null) {
+            fragment = new NewsFeedFragment();
+            fragmentManager.beginTransaction().add(fragment, TAG).commitNow();
+        }
+        return fragment;
+    }
+
+    @Override
+    public void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+
+        setRetainInstance(true);
+    }
+
+    /**
+     * Sets who is told when the news change, telling it right away about the news already
+     * loaded. The observer is only kept until {@link #removeObserver()}, which the activity
+     * calls when it is destroyed.
+     */
+    void observe(Observer observer) {
+        mObserver = observer;
+        if (mQuery != null) {
+            observer.onNewsChanged(mNews);
+        }
+    }
+
+    void removeObserver() {
+        mObserver = null;
+    }
+
+    List<News> getNews() {
+        return mNews;
+    }
+
+    String getQuery() {
+        return mQuery;
+    }
+
+    /**
+     * Starts the news of a new query, without any page yet.
+     */
+    void setQuery(String query) {
+        clearPages();
+        mNews = Collections.emptyList();
+        mQuery = query;
+    }
+
+    /**
+     * Returns the last first page added, or <code>null</code>.
+     */
+    List<News> getFirstPage() {
+        return mFirstPage;
+    }
+
+    /**
+     * Adds a loaded page to the news. The first page goes on top, followed by the news of the
+     * following pages that are not in it, so a refresh only changes the rows that are new. A
+     * following page only appends the news that are not loaded yet.
+     */
+    void addPage(int page, int pageSize, List<News> news) {
+        List<News> mergedNews = new ArrayList<>(mNews.size() + news.size());
+        if (page == 1) {
+            mFirstPage = news;
+            mLoadedUrls.clear();
+            addNewNews(mergedNews, news);
+            addNewNews(mergedNews, mNews);
+        } else {
+            mergedNews.addAll(mNews);
+            addNewNews(mergedNews, news);
+        }
+
+        mCurrentPage = Math.max(mCurrentPage, page);
+        mPageSize = pageSize;
+        mHasMorePages = news.size() >= pageSize;
+        setNews(mergedNews);
+    }
+
+    /**
+     * Removes all the news, along with their pages.
+     */
+    void clear() {
+        clearPages();
+        setNews(Collections.<News>emptyList());
+    }
+
+    void clearPages() {
+        mFirstPage = null;
+        mLoadedUrls.clear();
+        mCurrentPage = 0;
+        mHasMorePages = false;
+        mLoadingNextPage = false;
+    }
+
+    boolean isLoaded(String url) {
+        return mLoadedUrls.contains(url);
+    }
+
+    /**
+     * Returns how many of the given news are not loaded yet.
+     */
+    int countNewNews(List<News> news) {
+        int count = 0;
+        for (News currentNews : news) {
+            if (!mLoadedUrls.contains(currentNews.getUrl())) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    int getCurrentPage() {
+        return mCurrentPage;
+    }
+
+    /**
+     * Returns the page size of the pages added, or 0 when none was.
+     */
+    int getPageSize() {
+        return mCurrentPage > 0 ? mPageSize : 0;
+    }
+
+    /**
+     * Returns whether a page was added and the last one was full, so there may be another one.
+     */
+    boolean hasMorePages() {
+        return mCurrentPage > 0 && mHasMorePages;
+    }
+
+    boolean isLoadingNextPage() {
+        return mLoadingNextPage;
+    }
+
+    void setLoadingNextPage(boolean loadingNextPage) {
+        mLoadingNextPage = loadingNextPage;
+    }
+
+    private void setNews(List<News> news) {
+        mNews = Collections.unmodifiableList(news);
+        if (mObserver != null) {
+            mObserver.onNewsChanged(mNews);
+        }
+    }
+
+    /**
+     * Adds to the list the given news that are not loaded yet.
+     */
+    private void addNewNews(List<News> list, List<News> news) {
+        for (News currentNews : news) {
+            if (mLoadedUrls.add(currentNews.getUrl())) {
+                list.add(currentNews);
+            }
+        }
+    }
+}
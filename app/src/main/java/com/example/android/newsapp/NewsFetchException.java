@@ -0,0 +1,109 @@
+package com.example.android.newsapp;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+
+/**
+ * Why a fetch of the news failed, so the callers can tell an outage from a search without
+ * results and decide whether to retry.
+ */
+class NewsFetchException extends IOException {
+
+    enum Reason {
+        // No connection, or it broke before the response
+        NETWORK,
+        TIMEOUT,
+        // 429 Too Many Requests
+        RATE_LIMITED,
+        // 5xx
+        SERVER_ERROR,
+        // The other unexpected responses, like an invalid API key
+        CLIENT_ERROR,
+        PARSE,
+        // Not sent, because the recent requests kept failing
+        CIRCUIT_OPEN,
+        CANCELLED
+    }
+
+    // No Retry-After in the response
+    static final long NO_RETRY_AFTER = -1;
+
+    private final Reason mReason;
+    private final int mResponseCode;
+    private final long mRetryAfterMillis;
+
+    NewsFetchException(Reason reason, String message) {
+        this(reason, message, null, 0, NO_RETRY_AFTER);
+    }
+
+    NewsFetchException(Reason reason, String message, Throwable cause, int responseCode,
+                       long retryAfterMillis) {
+        super(message, cause);
+        mReason = reason;
+        mResponseCode = responseCode;
+        mRetryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Wraps the failure of a request that got no response.
+     */
+    static NewsFetchException fromIOException(IOException e) {
+        if (e instanceof NewsFetchException) {
+            return (NewsFetchException) e;
+        }
+
+        Reason reason = e instanceof SocketTimeoutException ? Reason.TIMEOUT : Reason.NETWORK;
+        return new NewsFetchException(reason, e.getMessage(), e, 0, NO_RETRY_AFTER);
+    }
+
+    /**
+     * Builds the failure of an unexpected response code.
+     */
+    static NewsFetchException fromResponse(int responseCode, long retryAfterMillis) {
+        Reason reason;
+        if (responseCode == 429) {
+            reason = Reason.RATE_LIMITED;
+        } else if (responseCode >= 500) {
+            reason = Reason.SERVER_ERROR;
+        } else {
+            reason = Reason.CLIENT_ERROR;
+        }
+
+        return new NewsFetchException(reason, "Error response code: " + responseCode, null,
+                responseCode, retryAfterMillis);
+    }
+
+    Reason getReason() {
+        return mReason;
+    }
+
+    /**
+     * Returns the response code, or 0 when there was no response.
+     */
+    int getResponseCode() {
+        return mResponseCode;
+    }
+
+    /**
+     * Returns how long the server asked to wait, or {@link #NO_RETRY_AFTER}.
+     */
+    long getRetryAfterMillis() {
+        return mRetryAfterMillis;
+    }
+
+    /**
+     * Whether the same request may succeed later, which also makes it count against the
+     * health of the API.
+     */
+    boolean isTransient() {
+        switch (mReason) {
+            case NETWORK:
+            case TIMEOUT:
+            case RATE_LIMITED:
+            case SERVER_ERROR:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Builds the text shown for each news, so the list only has to assign it. Meant to run on the
+ * loader thread.
+ */
+class NewsFormatter {
+
+    // SimpleDateFormat is not thread safe, so each thread gets its own
+    private static final ThreadLocal<SimpleDateFormat> OUTPUT_DATE_FORMAT =
+            new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    return new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+                }
+            };
+
+    private final String mAuthorLabel;
+    private final String mDateLabel;
+
+    NewsFormatter(Context context) {
+        mAuthorLabel = context.getString(R.string.by);
+        mDateLabel = context.getString(R.string.date);
+    }
+
+    /**
+     * Returns a copy of the given news with its display text built, or the news itself when
+     * already formatted.
+     */
+    News format(News news) {
+        if (news.isFormatted()) {
+            return news;
+        }
+
+        // Many news share the author or the day, so the text is pooled as well
+        StringPool pool = StringPool.getShared();
+
+        String displayAuthor = null;
+        if (news.getAuthor() != null) {
+            displayAuthor = pool.intern(mAuthorLabel + " " + news.getAuthor());
+        }
+
+        String displayDate = null;
+        if (news.getDate() != News.NO_DATE) {
+            displayDate = pool.intern(mDateLabel + " "
+                    + OUTPUT_DATE_FORMAT.get().format(new Date(news.getDate())));
+        }
+
+        return new News(news, displayAuthor, displayDate);
+    }
+}
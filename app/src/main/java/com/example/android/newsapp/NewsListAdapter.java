@@ -1,86 +1,175 @@
 package com.example.android.newsapp;
 
-import android.content.Context;
-import android.support.annotation.LayoutRes;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.annotation.NonNull;
-import android.util.Log;
+import android.support.v7.util.DiffUtil;
+import android.support.v7.widget.RecyclerView;
+import android.text.TextUtils;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.ImageView;
 import android.widget.TextView;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
-import java.util.TimeZone;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import butterknife.BindView;
 import butterknife.ButterKnife;
 
 /**
- * Adapter for the list of news returned from the API
+ * Adapter for the list of news returned from the API. The news must have been formatted by the
+ * {@link NewsFormatter}, so binding a row only assigns text.
+ * <p>
+ * A new list is copied into a {@link NewsStore} and diffed against the current one on a
+ * background thread, keyed on the news URL, and only the rows that changed are rebound. Even
+ * the first list is copied there, the main thread only swapping the stores. The rows are bound
+ * from the columns of the store, without building a news for each.
  */
-class NewsListAdapter extends ArrayAdapter<News> {
+class NewsListAdapter extends RecyclerView.Adapter<NewsListAdapter.ViewHolder> {
 
-    private static final String TAG = NewsListAdapter.class.getSimpleName();
+    // Diffs are computed one at a time, in the order the lists were submitted
+    private static final ExecutorService DIFF_EXECUTOR = Executors.newSingleThreadExecutor();
 
-    SimpleDateFormat inputDateFormat;
-    SimpleDateFormat outputDateFormat;
+    // Kept to skip the lookup on every bind
+    private static final Histogram BIND_HISTOGRAM = Metrics.getInstance().histogram(Metrics.BIND);
 
-    NewsListAdapter(@NonNull Context context, @LayoutRes int resource) {
-        super(context, resource);
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
 
-        inputDateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'", Locale.getDefault());
-        inputDateFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
+    private final OnNewsClickListener mClickListener;
 
-        outputDateFormat = new SimpleDateFormat("MMM dd, yyyy", Locale.getDefault());
+    // The news shown, never modified after being set
+    private NewsStore mNews = new NewsStore();
+
+    // Increased on every submitted list, so an outdated diff is dropped
+    private int mGeneration;
+
+    // Set along with the first row, decoding the thumbnails at the size of their view
+    private ThumbnailLoader mThumbnailLoader;
+    private int mThumbnailWidth;
+    private int mThumbnailHeight;
+
+    /**
+     * Listens to the clicks on the news of the list
+     */
+    interface OnNewsClickListener {
+        void onNewsClick(News news);
+    }
+
+    NewsListAdapter(@NonNull OnNewsClickListener clickListener) {
+        mClickListener = clickListener;
+    }
+
+    /**
+     * Replaces the news shown, once copied on the background thread. Must be called on the main
+     * thread, and the list must not be modified afterwards.
+     */
+    void submitList(@NonNull final List<News> news) {
+        final int generation = ++mGeneration;
+        final NewsStore oldNews = mNews;
+
+        DIFF_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                final NewsStore newNews = storeOf(news);
+
+                // Nothing to compare when either list is empty, the whole list changes
+                final DiffUtil.DiffResult result = oldNews.isEmpty() || newNews.isEmpty()
+                        ? null : DiffUtil.calculateDiff(new NewsDiffCallback(oldNews, newNews));
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (generation != mGeneration) {
+                            return;
+                        }
+
+                        mNews = newNews;
+                        if (result != null) {
+                            result.dispatchUpdatesTo(NewsListAdapter.this);
+                        } else {
+                            notifyDataSetChanged();
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    News getItem(int position) {
+        return mNews.get(position);
+    }
+
+    String getUrl(int position) {
+        return mNews.getUrl(position);
     }
 
-    @NonNull
     @Override
-    public View getView(int position, View convertView, @NonNull ViewGroup parent) {
-        ViewHolder holder;
-        if (convertView != null) {
-            holder = (ViewHolder) convertView.getTag();
-        } else {
-            convertView = LayoutInflater.from(getContext()).inflate(R.layout.search_result_item, parent, false);
-            holder = new ViewHolder(convertView);
-            convertView.setTag(holder);
+    public int getItemCount() {
+        return mNews.size();
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        if (mThumbnailLoader == null) {
+            Resources resources = parent.getResources();
+            mThumbnailLoader = ThumbnailLoader.getInstance(parent.getContext());
+            mThumbnailWidth = resources.getDimensionPixelSize(R.dimen.thumbnail_width);
+            mThumbnailHeight = resources.getDimensionPixelSize(R.dimen.thumbnail_height);
         }
 
-        News currentItem = getItem(position);
+        View view = LayoutInflater.from(parent.getContext())
+                .inflate(R.layout.search_result_item, parent, false);
+        return new ViewHolder(view);
+    }
 
-        holder.newsTitle.setText(currentItem.getTitle());
-        holder.newsSection.setText(currentItem.getSection());
+    @Override
+    public void onViewRecycled(ViewHolder holder) {
+        // The row went off screen, its thumbnail is not needed anymore
+        mThumbnailLoader.cancel(holder.newsThumbnail);
+        holder.newsThumbnail.setImageDrawable(null);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        long start = System.nanoTime();
 
-        if (currentItem.getAuthor() != null) {
+        holder.newsTitle.setText(mNews.getTitle(position));
+        holder.newsSection.setText(mNews.getSection(position));
+
+        String displayAuthor = mNews.getDisplayAuthor(position);
+        if (displayAuthor != null) {
             holder.newsAuthor.setVisibility(View.VISIBLE);
-            holder.newsAuthor.setText(String.format("%s %s", getContext().getResources().getString(R
-                    .string.by), currentItem.getAuthor()));
+            holder.newsAuthor.setText(displayAuthor);
         } else {
             holder.newsAuthor.setVisibility(View.GONE);
         }
 
-        if (currentItem.getDate() != null) {
-            try {
-                Date newsDate = inputDateFormat.parse(currentItem.getDate());
-
-                holder.newsDate.setVisibility(View.VISIBLE);
-                holder.newsDate.setText(String.format("%s %s", getContext().getResources()
-                        .getString(R.string.date), outputDateFormat.format(newsDate)));
-            } catch (ParseException e) {
-                Log.d(TAG, "Error parsing news publish date");
-            }
+        String displayDate = mNews.getDisplayDate(position);
+        if (displayDate != null) {
+            holder.newsDate.setVisibility(View.VISIBLE);
+            holder.newsDate.setText(displayDate);
         } else {
             holder.newsDate.setVisibility(View.GONE);
         }
 
-        return convertView;
+        String thumbnail = mNews.getThumbnail(position);
+        if (thumbnail != null) {
+            holder.newsThumbnail.setVisibility(View.VISIBLE);
+            mThumbnailLoader.load(thumbnail, holder.newsThumbnail,
+                    mThumbnailWidth, mThumbnailHeight);
+        } else {
+            mThumbnailLoader.cancel(holder.newsThumbnail);
+            holder.newsThumbnail.setVisibility(View.GONE);
+        }
+
+        BIND_HISTOGRAM.record(System.nanoTime() - start);
     }
 
-    static class ViewHolder {
+    class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
         @BindView(R.id.news_title)
         TextView newsTitle;
 
@@ -93,8 +182,69 @@ class NewsListAdapter extends ArrayAdapter<News> {
         @BindView(R.id.news_date)
         TextView newsDate;
 
+        @BindView(R.id.news_thumbnail)
+        ImageView newsThumbnail;
+
         private ViewHolder(View view) {
+            super(view);
             ButterKnife.bind(this, view);
+            view.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View view) {
+            int position = getAdapterPosition();
+            if (position != RecyclerView.NO_POSITION) {
+                mClickListener.onNewsClick(getItem(position));
+            }
+        }
+    }
+
+    private static NewsStore storeOf(List<News> news) {
+        NewsStore store = new NewsStore();
+        store.addAll(news);
+        return store;
+    }
+
+    /**
+     * Compares two lists of news, the same news being the one with the same URL
+     */
+    private static class NewsDiffCallback extends DiffUtil.Callback {
+
+        private final NewsStore mOldNews;
+        private final NewsStore mNewNews;
+
+        NewsDiffCallback(NewsStore oldNews, NewsStore newNews) {
+            mOldNews = oldNews;
+            mNewNews = newNews;
+        }
+
+        @Override
+        public int getOldListSize() {
+            return mOldNews.size();
+        }
+
+        @Override
+        public int getNewListSize() {
+            return mNewNews.size();
+        }
+
+        @Override
+        public boolean areItemsTheSame(int oldItemPosition, int newItemPosition) {
+            return mOldNews.getUrl(oldItemPosition).equals(mNewNews.getUrl(newItemPosition));
+        }
+
+        @Override
+        public boolean areContentsTheSame(int oldPosition, int newPosition) {
+            return TextUtils.equals(mOldNews.getTitle(oldPosition), mNewNews.getTitle(newPosition))
+                    && TextUtils.equals(mOldNews.getSection(oldPosition),
+                    mNewNews.getSection(newPosition))
+                    && TextUtils.equals(mOldNews.getDisplayAuthor(oldPosition),
+                    mNewNews.getDisplayAuthor(newPosition))
+                    && TextUtils.equals(mOldNews.getDisplayDate(oldPosition),
+                    mNewNews.getDisplayDate(newPosition))
+                    && TextUtils.equals(mOldNews.getThumbnail(oldPosition),
+                    mNewNews.getThumbnail(newPosition));
         }
     }
 }
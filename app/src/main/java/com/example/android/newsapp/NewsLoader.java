@@ -1,33 +1,247 @@
 package com.example.android.newsapp;
 
+import android.content.BroadcastReceiver;
 import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
 import android.support.v4.content.AsyncTaskLoader;
+import android.support.v4.content.LocalBroadcastManager;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 /**
- * Loader for the guardian news api
+ * Loader for the guardian news api. The news cached on disk are delivered first, then the
+ * loader refreshes them from the network. While started, it reloads the cache whenever the
+ * background sync stores new news for its request. When the network fails, the last news
+ * fetched successfully stay on screen and the failure is kept for the empty view.
  */
 class NewsLoader extends AsyncTaskLoader<List<News>> {
 
-    private String mUrl;
+    // One URL per section of the feed
+    private List<String> mUrls;
 
-    public NewsLoader(Context context, String url) {
+    // The words searched, empty for all the news
+    private String mQuery;
+
+    // The key of the cached news for this request
+    private String mCacheKey;
+
+    private NewsCache mCache;
+
+    // Filters, sorts and formats the news before they are delivered
+    private NewsPipeline mPipeline;
+
+    // The page of the results requested, starting at 1
+    private int mPage;
+
+    private int mPageSize;
+
+    // The last news delivered
+    private List<News> mNews;
+
+    // Whether the cache was already read by this loader
+    private boolean mCacheRead;
+
+    // Whether the news being delivered came from the cache and must be refreshed
+    private boolean mRefreshPending;
+
+    // Whether the next load only has to read the news stored by the background sync
+    private volatile boolean mSyncPending;
+
+    // Why the last fetch failed, null when it succeeded
+    private volatile NewsFetchException mFailure;
+
+    private BroadcastReceiver mSyncObserver;
+
+    public NewsLoader(Context context, List<String> urls, String query, String cacheKey,
+                      int page, int pageSize) {
         super(context);
-        this.mUrl = url;
+        this.mUrls = urls;
+        this.mQuery = query;
+        this.mCacheKey = cacheKey;
+        this.mCache = new NewsCache(context);
+        this.mPage = page;
+        this.mPageSize = pageSize;
+
+        Settings settings = Settings.getInstance(context);
+        this.mPipeline = new NewsPipeline(
+                NewsPipeline.muteSections(settings.getMutedSections()),
+                NewsPipeline.muteAuthors(settings.getMutedAuthors()),
+                NewsPipeline.distinctUrls(),
+                NewsPipeline.newestFirst(),
+                // Never more than the sections asked for, whatever the API sends
+                NewsPipeline.limit(pageSize * Math.max(1, urls.size())),
+                NewsPipeline.format(new NewsFormatter(context)));
+    }
+
+    String getQuery() {
+        return mQuery;
+    }
+
+    int getPage() {
+        return mPage;
+    }
+
+    int getPageSize() {
+        return mPageSize;
+    }
+
+    /**
+     * Returns why the last fetch failed, or <code>null</code> when it succeeded.
+     */
+    NewsFetchException getFailure() {
+        return mFailure;
     }
 
     @Override
     protected void onStartLoading() {
-        forceLoad();
+        if (mSyncObserver == null) {
+            mSyncObserver = new BroadcastReceiver() {
+                @Override
+                public void onReceive(Context context, Intent intent) {
+                    if (mCacheKey.equals(intent.getStringExtra(NewsSyncTask.EXTRA_CACHE_KEY))) {
+                        mSyncPending = true;
+                        onContentChanged();
+                    }
+                }
+            };
+            LocalBroadcastManager.getInstance(getContext()).registerReceiver(mSyncObserver,
+                    new IntentFilter(NewsSyncTask.ACTION_NEWS_SYNCED));
+        }
+
+        if (mNews != null) {
+            deliverResult(mNews);
+        }
+
+        if (takeContentChanged() || mNews == null) {
+            forceLoad();
+        }
     }
 
     @Override
     public List<News> loadInBackground() {
-        if (mUrl == null)
+        long start = System.nanoTime();
+        try {
+            return load();
+        } finally {
+            Metrics.getInstance().record(Metrics.LOAD, System.nanoTime() - start);
+        }
+    }
+
+    private List<News> load() {
+        if (mUrls == null || mUrls.isEmpty())
             return Collections.emptyList();
 
-        return QueryUtils.fetchNewsData(mUrl);
+        if (mSyncPending) {
+            mSyncPending = false;
+
+            List<News> syncedNews = readCache();
+            if (!syncedNews.isEmpty()) {
+                return deliverable(syncedNews);
+            }
+        }
+
+        if (!mCacheRead) {
+            mCacheRead = true;
+
+            List<News> cachedNews = readCache();
+            if (!cachedNews.isEmpty()) {
+                mRefreshPending = true;
+                return deliverable(cachedNews);
+            }
+        }
+
+        List<News> news;
+        Map<String, Long> watermarks = mPage == 1 ? mCache.getWatermarks(mCacheKey)
+                : Collections.<String, Long>emptyMap();
+        try {
+            // The first page only asks each section for the news published since its last ones
+            news = mPage == 1
+                    ? DeltaSync.fetch(mUrls, readCache(), watermarks, mPageSize, getChannel())
+                    : NewsFeedFetcher.fetch(mUrls, getChannel());
+            mFailure = null;
+        } catch (NewsFetchException e) {
+            mFailure = e;
+
+            // Keeps showing the last good news, the ones on screen or else the cached ones
+            if (mNews != null) {
+                return mNews;
+            }
+            return deliverable(readCache());
+        }
+
+        if (news.isEmpty()) {
+            // Nothing matches the request
+            return mNews != null ? mNews : news;
+        }
+
+        mCache.put(mCacheKey, news, watermarks);
+
+        return deliverable(news);
+    }
+
+    private List<News> readCache() {
+        long start = System.nanoTime();
+        List<News> news = mCache.get(mCacheKey);
+        Metrics.getInstance().record(Metrics.CACHE_READ, System.nanoTime() - start);
+        return news;
+    }
+
+    /**
+     * Runs the news through the pipeline and adds them to the local search index, so the next
+     * searches can find them.
+     *
+     * @return the news to deliver, in a list that cannot be modified
+     */
+    private List<News> deliverable(List<News> news) {
+        List<News> processed = mPipeline.process(news);
+        NewsSearchIndex.getInstance().addAll(processed);
+        return processed;
+    }
+
+    @Override
+    public void cancelLoadInBackground() {
+        // Aborts the HTTP requests, unless someone else waits for the same responses
+        if (mUrls != null) {
+            NewsFeedFetcher.cancel(getChannel(), mUrls.size());
+        }
+    }
+
+    /**
+     * A loader ID only has one load at a time, so a new load of the same ID supersedes the
+     * previous one.
+     */
+    private String getChannel() {
+        return "loader-" + getId();
+    }
+
+    @Override
+    public void deliverResult(List<News> news) {
+        mNews = news;
+
+        super.deliverResult(news);
+
+        // The cached news are on screen, now refreshes them from the network
+        if (mRefreshPending) {
+            mRefreshPending = false;
+            onContentChanged();
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        onStopLoading();
+
+        if (mSyncObserver != null) {
+            LocalBroadcastManager.getInstance(getContext()).unregisterReceiver(mSyncObserver);
+            mSyncObserver = null;
+        }
     }
 }
@@ -0,0 +1,302 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The processing the news go through on the loader thread, between the parse and the
+ * delivery, so the list receives them ready to show. The stages run in the order given, and
+ * the stages deciding on each news alone are fused into one pass, split across threads for
+ * the large merged feeds.
+ */
+final class NewsPipeline {
+
+    // Below this many news one thread is faster than handing the work around
+    private static final int PARALLEL_THRESHOLD = 1000;
+
+    private static final int THREAD_COUNT = Math.max(2,
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    private static final ExecutorService sExecutor;
+
+    static {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 30,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        sExecutor = executor;
+    }
+
+    // Newest first, the news without a date last, since NO_DATE is the smallest date
+    private static final Comparator<News> NEWEST_FIRST = new Comparator<News>() {
+        @Override
+        public int compare(News first, News second) {
+            long firstDate = first.getDate();
+            long secondDate = second.getDate();
+            return firstDate < secondDate ? 1 : (firstDate == secondDate ? 0 : -1);
+        }
+    };
+
+    /**
+     * One step of the pipeline, over the whole list
+     */
+    interface Stage {
+
+        /**
+         * Returns the processed news, leaving the given list unchanged.
+         */
+        List<News> process(List<News> news);
+    }
+
+    /**
+     * A step deciding on each news alone
+     */
+    abstract static class ItemStage implements Stage {
+
+        /**
+         * Returns the news to keep, possibly a changed copy, or <code>null</code> to drop it.
+         */
+        abstract News map(News news);
+
+        @Override
+        public List<News> process(List<News> news) {
+            return mapAll(news, Collections.<ItemStage>singletonList(this));
+        }
+    }
+
+    private final List<Stage> mStages;
+
+    NewsPipeline(Stage... stages) {
+        mStages = Arrays.asList(stages);
+    }
+
+    /**
+     * Runs the news through every stage. Must be called off the main thread, unless there are
+     * only a few news.
+     *
+     * @return the processed news, in a list that cannot be modified
+     */
+    List<News> process(List<News> news) {
+        List<News> result = news;
+
+        int i = 0;
+        while (i < mStages.size()) {
+            if (mStages.get(i) instanceof ItemStage) {
+                List<ItemStage> fused = new ArrayList<>();
+                while (i < mStages.size() && mStages.get(i) instanceof ItemStage) {
+                    fused.add((ItemStage) mStages.get(i++));
+                }
+                result = mapAll(result, fused);
+            } else {
+                result = mStages.get(i++).process(result);
+            }
+        }
+
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Keeps the first news of each URL.
+     */
+    static Stage distinctUrls() {
+        return new Stage() {
+            @Override
+            public List<News> process(List<News> news) {
+                Set<String> urls = new HashSet<>(news.size() * 2);
+                List<News> distinct = new ArrayList<>(news.size());
+                for (News currentNews : news) {
+                    if (urls.add(currentNews.getUrl())) {
+                        distinct.add(currentNews);
+                    }
+                }
+                return distinct;
+            }
+        };
+    }
+
+    /**
+     * Sorts the news by publication date, newest first and the news without a date last.
+     */
+    static Stage newestFirst() {
+        return new Stage() {
+            @Override
+            public List<News> process(List<News> news) {
+                if (news.size() < PARALLEL_THRESHOLD) {
+                    List<News> sorted = new ArrayList<>(news);
+                    Collections.sort(sorted, NEWEST_FIRST);
+                    return sorted;
+                }
+
+                // Sorts a slice per thread, then merges the sorted slices
+                List<Callable<List<News>>> tasks = new ArrayList<>();
+                for (final List<News> slice : slices(news)) {
+                    tasks.add(new Callable<List<News>>() {
+                        @Override
+                        public List<News> call() {
+                            List<News> sorted = new ArrayList<>(slice);
+                            Collections.sort(sorted, NEWEST_FIRST);
+                            return sorted;
+                        }
+                    });
+                }
+                return NewsFeedFetcher.merge(invokeAll(tasks), false);
+            }
+        };
+    }
+
+    /**
+     * Drops the news of the given sections, compared ignoring case.
+     */
+    static Stage muteSections(Set<String> sections) {
+        final Set<String> muted = lowerCase(sections);
+        return new ItemStage() {
+            @Override
+            News map(News news) {
+                return isMuted(muted, news.getSection()) ? null : news;
+            }
+        };
+    }
+
+    /**
+     * Drops the news of the given authors, compared ignoring case.
+     */
+    static Stage muteAuthors(Set<String> authors) {
+        final Set<String> muted = lowerCase(authors);
+        return new ItemStage() {
+            @Override
+            News map(News news) {
+                return isMuted(muted, news.getAuthor()) ? null : news;
+            }
+        };
+    }
+
+    /**
+     * Builds the display text of each news.
+     */
+    static Stage format(final NewsFormatter formatter) {
+        return new ItemStage() {
+            @Override
+            News map(News news) {
+                return formatter.format(news);
+            }
+        };
+    }
+
+    /**
+     * Keeps at most the given number of news, the first ones.
+     */
+    static Stage limit(final int maxNews) {
+        return new Stage() {
+            @Override
+            public List<News> process(List<News> news) {
+                return news.size() <= maxNews ? news : news.subList(0, maxNews);
+            }
+        };
+    }
+
+    private static boolean isMuted(Set<String> muted, String value) {
+        return value != null && !muted.isEmpty()
+                && muted.contains(value.toLowerCase(Locale.getDefault()));
+    }
+
+    private static Set<String> lowerCase(Set<String> values) {
+        Set<String> lowerCase = new HashSet<>(values.size() * 2);
+        for (String value : values) {
+            lowerCase.add(value.trim().toLowerCase(Locale.getDefault()));
+        }
+        return lowerCase;
+    }
+
+    /**
+     * Runs every news through the given stages in one pass, a slice per thread for the
+     * large lists, keeping their order.
+     */
+    private static List<News> mapAll(List<News> news, final List<ItemStage> stages) {
+        if (news.size() < PARALLEL_THRESHOLD) {
+            return mapSlice(news, stages);
+        }
+
+        List<Callable<List<News>>> tasks = new ArrayList<>();
+        for (final List<News> slice : slices(news)) {
+            tasks.add(new Callable<List<News>>() {
+                @Override
+                public List<News> call() {
+                    return mapSlice(slice, stages);
+                }
+            });
+        }
+
+        List<News> mapped = new ArrayList<>(news.size());
+        for (List<News> slice : invokeAll(tasks)) {
+            mapped.addAll(slice);
+        }
+        return mapped;
+    }
+
+    private static List<News> mapSlice(List<News> news, List<ItemStage> stages) {
+        List<News> mapped = new ArrayList<>(news.size());
+        for (News currentNews : news) {
+            for (int i = 0; i < stages.size() && currentNews != null; i++) {
+                currentNews = stages.get(i).map(currentNews);
+            }
+            if (currentNews != null) {
+                mapped.add(currentNews);
+            }
+        }
+        return mapped;
+    }
+
+    /**
+     * Splits the news into one contiguous slice per thread.
+     */
+    private static List<List<News>> slices(List<News> news) {
+        int sliceSize = (news.size() + THREAD_COUNT - 1) / THREAD_COUNT;
+        List<List<News>> slices = new ArrayList<>(THREAD_COUNT);
+        for (int start = 0; start < news.size(); start += sliceSize) {
+            slices.add(news.subList(start, Math.min(news.size(), start + sliceSize)));
+        }
+        return slices;
+    }
+
+    /**
+     * Runs the tasks on the pipeline threads and returns their results in order.
+     */
+    private static List<List<News>> invokeAll(List<Callable<List<News>>> tasks) {
+        List<List<News>> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<List<News>> future : sExecutor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            // Finishes on this thread rather than losing the news
+            Thread.currentThread().interrupt();
+            results.clear();
+            for (Callable<List<News>> task : tasks) {
+                results.add(callUnchecked(task));
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("News pipeline stage failed", e.getCause());
+        }
+        return results;
+    }
+
+    private static List<News> callUnchecked(Callable<List<News>> task) {
+        try {
+            return task.call();
+        } catch (Exception e) {
+            throw new IllegalStateException("News pipeline stage failed", e);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.android.newsapp;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Inverted index over the title, section and author of the news loaded, so a search can be
+ * answered locally while the remote one is on its way. News are added as their pages load,
+ * and the words typed are matched as prefixes. Only the news loaded last are kept, the ones
+ * loaded longest ago making room for the new ones.
+ */
+final class NewsSearchIndex {
+
+    // About a hundred pages of news
+    static final int MAX_DOCUMENTS = 2000;
+
+    private static final NewsSearchIndex sInstance = new NewsSearchIndex(MAX_DOCUMENTS);
+
+    private final int mMaxDocuments;
+
+    // The news indexed, the position being the document ID, reused once its news is evicted.
+    // An evicted news is replaced in its slot, so nothing of it stays reachable
+    private final News[] mNews;
+
+    // The document ID of each news, by URL, the news loaded longest ago first
+    private final LinkedHashMap<String, Integer> mIds = new LinkedHashMap<>(16, 0.75f, true);
+
+    // The IDs of the documents containing each word, in ascending order
+    private final TreeMap<String, List<Integer>> mPostings = new TreeMap<>();
+
+    static NewsSearchIndex getInstance() {
+        return sInstance;
+    }
+
+    NewsSearchIndex(int maxDocuments) {
+        mMaxDocuments = maxDocuments;
+        mNews = new News[maxDocuments];
+    }
+
+    /**
+     * Indexes the news that are not indexed yet, evicting the news loaded longest ago once the
+     * index is full. The news already indexed are replaced, so their text is the latest one.
+     */
+    synchronized void addAll(List<News> news) {
+        for (News currentNews : news) {
+            Integer id = mIds.get(currentNews.getUrl());
+            if (id != null) {
+                News indexedNews = mNews[id];
+                mNews[id] = currentNews;
+                if (!sameWords(indexedNews, currentNews)) {
+                    unindex(id, indexedNews);
+                    index(id, currentNews);
+                }
+                continue;
+            }
+
+            if (mIds.size() < mMaxDocuments) {
+                // No news was evicted yet, so the IDs in use are the ones below the size
+                id = mIds.size();
+            } else {
+                Iterator<Map.Entry<String, Integer>> eldest = mIds.entrySet().iterator();
+                id = eldest.next().getValue();
+                eldest.remove();
+                unindex(id, mNews[id]);
+            }
+            mNews[id] = currentNews;
+            mIds.put(currentNews.getUrl(), id);
+            index(id, currentNews);
+        }
+    }
+
+    synchronized int size() {
+        return mIds.size();
+    }
+
+    /**
+     * Returns the news that have, for every word of the query, a word starting with it.
+     */
+    synchronized List<News> search(String query) {
+        List<String> words = tokenize(query);
+        if (words.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        BitSet result = null;
+        for (String word : words) {
+            BitSet matches = new BitSet(mIds.size());
+            for (List<Integer> postings : mPostings.subMap(word, true,
+                    word + Character.MAX_VALUE, true).values()) {
+                for (int id : postings) {
+                    matches.set(id);
+                }
+            }
+
+            if (result == null) {
+                result = matches;
+            } else {
+                result.and(matches);
+            }
+
+            if (result.isEmpty()) {
+                return Collections.emptyList();
+            }
+        }
+
+        List<News> news = new ArrayList<>(result.cardinality());
+        for (int id = result.nextSetBit(0); id >= 0; id = result.nextSetBit(id + 1)) {
+            news.add(mNews[id]);
+        }
+
+        return news;
+    }
+
+    private void index(int id, News news) {
+        for (String word : words(news)) {
+            List<Integer> postings = mPostings.get(word);
+            if (postings == null) {
+                postings = new ArrayList<>(1);
+                mPostings.put(word, postings);
+            }
+
+            // The same word can appear several times in the news, and a reused ID can come
+            // before the others
+            int position = Collections.binarySearch(postings, id);
+            if (position < 0) {
+                postings.add(-position - 1, id);
+            }
+        }
+    }
+
+    /**
+     * Removes the given news from the postings of its words, and the words left without any.
+     */
+    private void unindex(int id, News news) {
+        for (String word : words(news)) {
+            List<Integer> postings = mPostings.get(word);
+            if (postings == null) {
+                continue;
+            }
+
+            int position = Collections.binarySearch(postings, id);
+            if (position >= 0) {
+                postings.remove(position);
+                if (postings.isEmpty()) {
+                    mPostings.remove(word);
+                }
+            }
+        }
+    }
+
+    private static List<String> words(News news) {
+        List<String> words = new ArrayList<>(tokenize(news.getTitle()));
+        words.addAll(tokenize(news.getSection()));
+        words.addAll(tokenize(news.getAuthor()));
+        return words;
+    }
+
+    private static boolean sameWords(News first, News second) {
+        return equal(first.getTitle(), second.getTitle())
+                && equal(first.getSection(), second.getSection())
+                && equal(first.getAuthor(), second.getAuthor());
+    }
+
+    private static boolean equal(String first, String second) {
+        return first == null ? second == null : first.equals(second);
+    }
+
+    /**
+     * Splits the text into lower case words made of letters and digits.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> words = new ArrayList<>();
+        String lowerCaseText = text.toLowerCase(Locale.getDefault());
+
+        int start = -1;
+        for (int i = 0; i <= lowerCaseText.length(); i++) {
+            boolean wordChar = i < lowerCaseText.length()
+                    && Character.isLetterOrDigit(lowerCaseText.charAt(i));
+            if (wordChar && start == -1) {
+                start = i;
+            } else if (!wordChar && start != -1) {
+                words.add(lowerCaseText.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return words;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.android.newsapp;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * Compact list of news, kept as parallel columns instead of one object per news. The repeated
+ * values, like the sections and the bylines, are stored once in a table of values and
+ * referenced by position, and the dates are stored as epoch milliseconds.
+ * <p>
+ * Reading a position builds a {@link News} from the columns, so the rows being bound read the
+ * columns they show instead, without allocating.
+ */
+final class NewsStore extends AbstractList<News> implements RandomAccess {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private String[] mTitles = new String[INITIAL_CAPACITY];
+    private String[] mUrls = new String[INITIAL_CAPACITY];
+    private String[] mThumbnails = new String[INITIAL_CAPACITY];
+    private long[] mDates = new long[INITIAL_CAPACITY];
+
+    // Whether each news went through the formatter, even when it has no display text
+    private boolean[] mFormatted = new boolean[INITIAL_CAPACITY];
+
+    // Positions in mValues, -1 for no value
+    private int[] mSections = new int[INITIAL_CAPACITY];
+    private int[] mAuthors = new int[INITIAL_CAPACITY];
+    private int[] mDisplayAuthors = new int[INITIAL_CAPACITY];
+    private int[] mDisplayDates = new int[INITIAL_CAPACITY];
+
+    // The repeated values, each stored once
+    private final ValueTable mValues = new ValueTable();
+
+    private int mSize;
+
+    @Override
+    public boolean add(News news) {
+        ensureCapacity(mSize + 1);
+        write(mSize, news);
+        mSize++;
+        modCount++;
+
+        return true;
+    }
+
+    @Override
+    public News set(int position, News news) {
+        News previous = get(position);
+        write(position, news);
+
+        return previous;
+    }
+
+    @Override
+    public News get(int position) {
+        checkPosition(position);
+
+        News news = new News(mTitles[position], mValues.get(mSections[position]),
+                mUrls[position], mValues.get(mAuthors[position]), mDates[position],
+                mThumbnails[position]);
+        if (!mFormatted[position]) {
+            return news;
+        }
+
+        return new News(news, mValues.get(mDisplayAuthors[position]),
+                mValues.get(mDisplayDates[position]));
+    }
+
+    @Override
+    public int size() {
+        return mSize;
+    }
+
+    String getTitle(int position) {
+        checkPosition(position);
+        return mTitles[position];
+    }
+
+    String getSection(int position) {
+        checkPosition(position);
+        return mValues.get(mSections[position]);
+    }
+
+    String getUrl(int position) {
+        checkPosition(position);
+        return mUrls[position];
+    }
+
+    String getThumbnail(int position) {
+        checkPosition(position);
+        return mThumbnails[position];
+    }
+
+    String getDisplayAuthor(int position) {
+        checkPosition(position);
+        return mValues.get(mDisplayAuthors[position]);
+    }
+
+    String getDisplayDate(int position) {
+        checkPosition(position);
+        return mValues.get(mDisplayDates[position]);
+    }
+
+    private void write(int position, News news) {
+        mTitles[position] = news.getTitle();
+        mUrls[position] = news.getUrl();
+        mThumbnails[position] = news.getThumbnail();
+        mDates[position] = news.getDate();
+        mFormatted[position] = news.isFormatted();
+        mSections[position] = mValues.add(news.getSection());
+        mAuthors[position] = mValues.add(news.getAuthor());
+        mDisplayAuthors[position] = mValues.add(toString(news.getDisplayAuthor()));
+        mDisplayDates[position] = mValues.add(toString(news.getDisplayDate()));
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= mTitles.length) {
+            return;
+        }
+
+        int newCapacity = Math.max(capacity, mTitles.length * 2);
+        mTitles = Arrays.copyOf(mTitles, newCapacity);
+        mUrls = Arrays.copyOf(mUrls, newCapacity);
+        mThumbnails = Arrays.copyOf(mThumbnails, newCapacity);
+        mDates = Arrays.copyOf(mDates, newCapacity);
+        mFormatted = Arrays.copyOf(mFormatted, newCapacity);
+        mSections = Arrays.copyOf(mSections, newCapacity);
+        mAuthors = Arrays.copyOf(mAuthors, newCapacity);
+        mDisplayAuthors = Arrays.copyOf(mDisplayAuthors, newCapacity);
+        mDisplayDates = Arrays.copyOf(mDisplayDates, newCapacity);
+    }
+
+    private void checkPosition(int position) {
+        if (position < 0 || position >= mSize) {
+            throw new IndexOutOfBoundsException("Position " + position + ", size " + mSize);
+        }
+    }
+
+    private static String toString(CharSequence text) {
+        return text != null ? text.toString() : null;
+    }
+
+    /**
+     * The distinct values of the store, numbered in the order they were added
+     */
+    private static final class ValueTable {
+
+        private final Map<String, Integer> mPositions = new HashMap<>();
+        private String[] mValues = new String[INITIAL_CAPACITY];
+
+        int add(String value) {
+            if (value == null) {
+                return -1;
+            }
+
+            Integer position = mPositions.get(value);
+            if (position == null) {
+                position = mPositions.size();
+                if (position == mValues.length) {
+                    mValues = Arrays.copyOf(mValues, position * 2);
+                }
+                mValues[position] = value;
+                mPositions.put(value, position);
+            }
+
+            return position;
+        }
+
+        String get(int position) {
+            return position == -1 ? null : mValues[position];
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.android.newsapp;
+
+import android.app.IntentService;
+import android.content.Intent;
+
+/**
+ * Runs the news sync on the devices without JobScheduler, started by an alarm
+ */
+public class NewsSyncIntentService extends IntentService {
+
+    public NewsSyncIntentService() {
+        super("NewsSyncIntentService");
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        if (NewsSyncUtils.isNetworkAvailable(this)) {
+            NewsSyncTask.syncNews(this);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.AsyncTask;
+import android.os.Build;
+
+/**
+ * Runs the news sync when the JobScheduler decides to
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class NewsSyncJobService extends JobService {
+
+    private AsyncTask<Void, Void, Boolean> mSyncTask;
+
+    @Override
+    public boolean onStartJob(final JobParameters jobParameters) {
+        mSyncTask = new AsyncTask<Void, Void, Boolean>() {
+            @Override
+            protected Boolean doInBackground(Void... voids) {
+                return NewsSyncTask.syncNews(getApplicationContext());
+            }
+
+            @Override
+            protected void onPostExecute(Boolean synced) {
+                // A failed sync is retried with the backoff of the job
+                jobFinished(jobParameters, !synced);
+            }
+        };
+        mSyncTask.execute();
+
+        return true;
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters jobParameters) {
+        if (mSyncTask != null) {
+            mSyncTask.cancel(true);
+        }
+
+        return true;
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.support.v4.content.LocalBroadcastManager;
+import android.text.TextUtils;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Refreshes, in the background, the first page of the last news request made by the user and
+ * stores it in the {@link NewsCache}
+ */
+class NewsSyncTask {
+
+    private static final String TAG = "NewsSyncTask";
+
+    // Broadcast sent when new news were stored, with the key they were stored under
+    static final String ACTION_NEWS_SYNCED = "com.example.android.newsapp.ACTION_NEWS_SYNCED";
+    static final String EXTRA_CACHE_KEY = "cache_key";
+
+    private static final String PREFS_NAME = "news_sync";
+    private static final String PREF_URLS = "urls";
+
+    // Separates the URLs stored in one preference, URLs never contain it
+    private static final String URL_SEPARATOR = " ";
+    private static final String PREF_CACHE_KEY = "cache_key";
+    private static final String PREF_PAGE_SIZE = "page_size";
+
+    // Only one sync runs at a time, whoever started it
+    private static final Object sLock = new Object();
+
+    private NewsSyncTask() {
+    }
+
+    /**
+     * Remembers the request that the background sync has to refresh.
+     */
+    static void setSyncRequest(Context context, List<String> urls, String cacheKey,
+                               int pageSize) {
+        context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE)
+                .edit()
+                .putString(PREF_URLS, TextUtils.join(URL_SEPARATOR, urls))
+                .putString(PREF_CACHE_KEY, cacheKey)
+                .putInt(PREF_PAGE_SIZE, pageSize)
+                .apply();
+    }
+
+    /**
+     * Fetches the news of the remembered request and stores them. Must be called off the main
+     * thread.
+     *
+     * @return <code>false</code> when the fetch failed and should be retried later, an empty
+     *         result being a success
+     */
+    static boolean syncNews(Context context) {
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        String urls = prefs.getString(PREF_URLS, null);
+        String cacheKey = prefs.getString(PREF_CACHE_KEY, null);
+        int pageSize = prefs.getInt(PREF_PAGE_SIZE, 0);
+        if (TextUtils.isEmpty(urls) || cacheKey == null || pageSize <= 0) {
+            return true;
+        }
+
+        // Waits for the next scheduled sync rather than retrying
+        if (NewsSyncUtils.isBatteryLow(context)) {
+            Log.d(TAG, "Sync skipped, the battery is low");
+            return true;
+        }
+
+        synchronized (sLock) {
+            NewsCache cache = new NewsCache(context);
+
+            // Only asks for the news published since the stored ones, and joins the requests
+            // of the loader when it is fetching the same news
+            List<News> news;
+            Map<String, Long> watermarks = cache.getWatermarks(cacheKey);
+            try {
+                news = DeltaSync.fetch(Arrays.asList(TextUtils.split(urls, URL_SEPARATOR)),
+                        cache.get(cacheKey), watermarks, pageSize, null);
+            } catch (NewsFetchException e) {
+                Log.w(TAG, "Sync failed for " + cacheKey + ": " + e.getReason(), e);
+
+                // The job scheduler backs off before retrying what may succeed later
+                boolean retry = e.isTransient()
+                        || e.getReason() == NewsFetchException.Reason.CIRCUIT_OPEN;
+                return !retry;
+            }
+
+            // Nothing matches the request, which is a sync all the same
+            if (news.isEmpty()) {
+                Log.d(TAG, "Nothing fetched for " + cacheKey);
+                return true;
+            }
+
+            cache.put(cacheKey, news, watermarks);
+        }
+
+        Intent syncedIntent = new Intent(ACTION_NEWS_SYNCED);
+        syncedIntent.putExtra(EXTRA_CACHE_KEY, cacheKey);
+        LocalBroadcastManager.getInstance(context).sendBroadcast(syncedIntent);
+
+        return true;
+    }
+}
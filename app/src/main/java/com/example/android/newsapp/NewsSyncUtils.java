@@ -0,0 +1,153 @@
+package com.example.android.newsapp;
+
+import android.annotation.TargetApi;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.SystemClock;
+import android.support.v4.net.ConnectivityManagerCompat;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the periodic news sync, with the JobScheduler when available and with an inexact
+ * alarm otherwise. There is only ever one schedule, for the current interval.
+ */
+class NewsSyncUtils {
+
+    private static final int SYNC_JOB_ID = 1;
+
+    private static final String PREFS_NAME = "news_sync_schedule";
+    private static final String PREF_ALARM_INTERVAL = "alarm_interval";
+
+    // The first retry of a failed sync, doubled on each new failure
+    private static final long BACKOFF_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    // Below this battery percentage, the sync is skipped unless charging
+    private static final int LOW_BATTERY_PERCENT = 15;
+
+    private NewsSyncUtils() {
+    }
+
+    /**
+     * Schedules the sync every given minutes, unless it is already scheduled with that
+     * interval.
+     */
+    static void scheduleSync(Context context, int intervalMinutes) {
+        long intervalMillis = TimeUnit.MINUTES.toMillis(intervalMinutes);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            scheduleSyncJob(context, intervalMillis);
+        } else {
+            scheduleSyncAlarm(context, intervalMillis);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleSyncJob(Context context, long intervalMillis) {
+        JobScheduler jobScheduler =
+                (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+
+        // From Nougat, the job runs at most every 15 minutes whatever the interval asked for
+        long periodMillis = intervalMillis;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            periodMillis = Math.max(intervalMillis, JobInfo.getMinPeriodMillis());
+        }
+
+        for (JobInfo pendingJob : jobScheduler.getAllPendingJobs()) {
+            if (pendingJob.getId() == SYNC_JOB_ID
+                    && pendingJob.getIntervalMillis() == periodMillis) {
+                return;
+            }
+        }
+
+        JobInfo.Builder builder = new JobInfo.Builder(SYNC_JOB_ID,
+                new ComponentName(context, NewsSyncJobService.class))
+                .setRequiredNetworkType(JobInfo.NETWORK_TYPE_ANY)
+                .setPeriodic(intervalMillis)
+                .setBackoffCriteria(BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL)
+                .setPersisted(true);
+
+        // Replaces the job with the same ID, if any
+        jobScheduler.schedule(builder.build());
+    }
+
+    private static void scheduleSyncAlarm(Context context, long intervalMillis) {
+        Intent intent = new Intent(context, NewsSyncIntentService.class);
+        SharedPreferences prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+
+        boolean alarmSet = PendingIntent.getService(context, SYNC_JOB_ID, intent,
+                PendingIntent.FLAG_NO_CREATE) != null;
+        if (alarmSet && prefs.getLong(PREF_ALARM_INTERVAL, 0) == intervalMillis) {
+            return;
+        }
+
+        // The same PendingIntent replaces the previous alarm
+        PendingIntent syncIntent = PendingIntent.getService(context, SYNC_JOB_ID, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT);
+
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.setInexactRepeating(AlarmManager.ELAPSED_REALTIME,
+                SystemClock.elapsedRealtime() + intervalMillis, intervalMillis, syncIntent);
+
+        prefs.edit().putLong(PREF_ALARM_INTERVAL, intervalMillis).apply();
+    }
+
+    /**
+     * Checks if the battery is low and not charging. JobInfo.Builder#setRequiresBatteryNotLow
+     * is only available from API 26, so the sync checks it by itself.
+     */
+    static boolean isBatteryLow(Context context) {
+        Intent batteryStatus = context.registerReceiver(null,
+                new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (batteryStatus == null) {
+            return false;
+        }
+
+        int status = batteryStatus.getIntExtra(BatteryManager.EXTRA_STATUS, -1);
+        if (status == BatteryManager.BATTERY_STATUS_CHARGING
+                || status == BatteryManager.BATTERY_STATUS_FULL) {
+            return false;
+        }
+
+        int level = batteryStatus.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+        int scale = batteryStatus.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+
+        return level >= 0 && scale > 0 && level * 100 / scale < LOW_BATTERY_PERCENT;
+    }
+
+    /**
+     * Checks if the internet connection is available
+     *
+     * @return <code>true</code> when internet is available, <code>false</code> otherwise
+     */
+    static boolean isNetworkAvailable(Context context) {
+        ConnectivityManager connMgr = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+        NetworkInfo networkInfo = connMgr.getActiveNetworkInfo();
+
+        return networkInfo != null && networkInfo.isConnected();
+    }
+
+    /**
+     * Whether the device is connected to a network that does not charge by the byte, like
+     * most Wi-Fi networks.
+     */
+    static boolean isUnmeteredNetworkAvailable(Context context) {
+        ConnectivityManager connMgr = (ConnectivityManager)
+                context.getSystemService(Context.CONNECTIVITY_SERVICE);
+
+        return isNetworkAvailable(context)
+                && !ConnectivityManagerCompat.isActiveNetworkMetered(connMgr);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.android.newsapp;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Map;
+
+/**
+ * Sends the HTTP requests of {@link QueryUtils}, so the client behind them can be swapped,
+ * for example for one pointed at a local server in the tests.
+ */
+interface NewsTransport {
+
+    /**
+     * Prepares a GET request to the given URL with the given headers, without sending it.
+     */
+    Exchange newExchange(URL url, Map<String, String> headers);
+
+    /**
+     * Opens a connection to the host of the given URL ahead of the first request, so that one
+     * does not wait for the DNS lookup and the handshakes. Must be called off the main thread.
+     */
+    void warmUp(URL url) throws IOException;
+
+    /**
+     * One request and its response
+     */
+    interface Exchange {
+
+        /**
+         * Sends the request and waits for the response headers. The response must be closed.
+         */
+        Response execute() throws IOException;
+
+        /**
+         * Aborts the request from any thread, making the blocked calls fail right away.
+         */
+        void cancel();
+    }
+
+    interface Response extends Closeable {
+
+        int getCode();
+
+        String getHeader(String name);
+
+        /**
+         * Returns the body as sent, still compressed when the response has a Content-Encoding.
+         */
+        InputStream getBody() throws IOException;
+    }
+}
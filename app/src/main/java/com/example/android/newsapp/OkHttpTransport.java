@@ -0,0 +1,228 @@
+package com.example.android.newsapp;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.URL;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+
+/**
+ * Transport keeping the connections alive in a pool, so the refreshes and the next pages
+ * reuse the socket and the TLS session of the previous request instead of shaking hands
+ * again. HTTP/2 is negotiated when the server and the platform support it, in which case the
+ * parallel section requests share one connection.
+ */
+final class OkHttpTransport implements NewsTransport {
+
+    // Idle connections kept for the next requests, one per host being usually enough
+    private static final int MAX_IDLE_CONNECTIONS = 5;
+
+    // How long an idle connection is kept, in minutes
+    private static final long KEEP_ALIVE_MINUTES = 5;
+
+    private static final long CONNECT_TIMEOUT_MILLIS = 15000;
+    private static final long READ_TIMEOUT_MILLIS = 10000;
+
+    private static final OkHttpTransport sInstance = new OkHttpTransport();
+
+    private final OkHttpClient mClient;
+
+    // Requests sent, and the new connections they needed
+    private final AtomicLong mRequests = new AtomicLong();
+    private final AtomicLong mConnections = new AtomicLong();
+
+    static OkHttpTransport getInstance() {
+        return sInstance;
+    }
+
+    OkHttpTransport() {
+        this(CONNECT_TIMEOUT_MILLIS, READ_TIMEOUT_MILLIS);
+    }
+
+    OkHttpTransport(long connectTimeoutMillis, long readTimeoutMillis) {
+        // Asking for gzip explicitly in the request headers turns off the transparent
+        // decoding of OkHttp, so the compressed size can be counted
+        mClient = new OkHttpClient.Builder()
+                .connectionPool(new ConnectionPool(MAX_IDLE_CONNECTIONS, KEEP_ALIVE_MINUTES,
+                        TimeUnit.MINUTES))
+                .connectTimeout(connectTimeoutMillis, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMillis, TimeUnit.MILLISECONDS)
+                .eventListenerFactory(new EventListener.Factory() {
+                    @Override
+                    public EventListener create(Call call) {
+                        return new StageListener();
+                    }
+                })
+                .build();
+    }
+
+    @Override
+    public Exchange newExchange(URL url, Map<String, String> headers) {
+        Request.Builder request = new Request.Builder().url(url);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            request.header(header.getKey(), header.getValue());
+        }
+
+        return new OkHttpExchange(mClient.newCall(request.build()));
+    }
+
+    @Override
+    public void warmUp(URL url) throws IOException {
+        // A HEAD request leaves an idle connection in the pool for the next request
+        okhttp3.Response response = mClient.newCall(
+                new Request.Builder().url(url).head().build()).execute();
+        response.close();
+    }
+
+    long getRequests() {
+        return mRequests.get();
+    }
+
+    long getConnections() {
+        return mConnections.get();
+    }
+
+    /**
+     * Returns the share of the requests that went over a connection already open.
+     */
+    float getReuseRate() {
+        long requests = getRequests();
+        return requests > 0 ? (float) (requests - getConnections()) / requests : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "requests=%d connections=%d reuse=%.0f%%",
+                getRequests(), getConnections(), getReuseRate() * 100);
+    }
+
+    /**
+     * Times the stages of one request into the {@link Metrics}
+     */
+    private final class StageListener extends EventListener {
+
+        private long mDnsStart;
+        private long mConnectStart;
+        private long mSecureConnectStart;
+        private long mRequestStart;
+
+        @Override
+        public void callStart(Call call) {
+            mRequests.incrementAndGet();
+        }
+
+        @Override
+        public void dnsStart(Call call, String domainName) {
+            mDnsStart = System.nanoTime();
+        }
+
+        @Override
+        public void dnsEnd(Call call, String domainName, List<InetAddress> addresses) {
+            Metrics.getInstance().record(Metrics.DNS, System.nanoTime() - mDnsStart);
+        }
+
+        @Override
+        public void connectStart(Call call, InetSocketAddress address, Proxy proxy) {
+            mConnections.incrementAndGet();
+            mConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectStart(Call call) {
+            mSecureConnectStart = System.nanoTime();
+        }
+
+        @Override
+        public void secureConnectEnd(Call call, Handshake handshake) {
+            Metrics.getInstance().record(Metrics.TLS, System.nanoTime() - mSecureConnectStart);
+        }
+
+        @Override
+        public void connectEnd(Call call, InetSocketAddress address, Proxy proxy,
+                               Protocol protocol) {
+            Metrics.getInstance().record(Metrics.CONNECT, System.nanoTime() - mConnectStart);
+        }
+
+        @Override
+        public void requestHeadersStart(Call call) {
+            mRequestStart = System.nanoTime();
+        }
+
+        @Override
+        public void responseHeadersStart(Call call) {
+            Metrics.getInstance().record(Metrics.TIME_TO_FIRST_BYTE,
+                    System.nanoTime() - mRequestStart);
+        }
+    }
+
+    private static final class OkHttpExchange implements Exchange {
+
+        private final Call mCall;
+
+        OkHttpExchange(Call call) {
+            mCall = call;
+        }
+
+        @Override
+        public Response execute() throws IOException {
+            return new OkHttpResponse(mCall.execute());
+        }
+
+        @Override
+        public void cancel() {
+            mCall.cancel();
+        }
+    }
+
+    private static final class OkHttpResponse implements Response {
+
+        private final okhttp3.Response mResponse;
+
+        OkHttpResponse(okhttp3.Response response) {
+            mResponse = response;
+        }
+
+        @Override
+        public int getCode() {
+            return mResponse.code();
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return mResponse.header(name);
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            ResponseBody body = mResponse.body();
+            if (body == null) {
+                throw new IOException("Response without a body");
+            }
+            return body.byteStream();
+        }
+
+        /**
+         * Releases the connection back to the pool, closing it only if the body was not
+         * read to the end.
+         */
+        @Override
+        public void close() {
+            mResponse.close();
+        }
+    }
+}
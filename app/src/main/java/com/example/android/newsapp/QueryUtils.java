@@ -1,38 +1,212 @@
 package com.example.android.newsapp;
 
 import android.text.TextUtils;
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
+import android.util.MalformedJsonException;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
+import java.net.SocketTimeoutException;
 import java.net.URL;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.zip.GZIPInputStream;
+
+import javax.net.ssl.SSLException;
 
 class QueryUtils {
 
     private static final String TAG = "QueryUtils";
 
-    static List<News> fetchNewsData(String requestUrl) {
+    // JSON is UTF-8 unless the response says otherwise
+    static final Charset DEFAULT_CHARSET = Charset.forName("UTF-8");
+
+    private static final String CHARSET_PARAM = "charset=";
+
+    // SimpleDateFormat is not thread safe, so each thread gets its own
+    private static final ThreadLocal<SimpleDateFormat> API_DATE_FORMAT =
+            new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'",
+                            Locale.US);
+                    format.setTimeZone(TimeZone.getTimeZone("UTC"));
+                    return format;
+                }
+            };
+
+    // Size of the chunks read from the response
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // Buffers reused by every read made on the same thread
+    private static final ThreadLocal<ByteBuffer> BYTE_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(BUFFER_SIZE);
+        }
+    };
+    private static final ThreadLocal<CharBuffer> CHAR_BUFFER = new ThreadLocal<CharBuffer>() {
+        @Override
+        protected CharBuffer initialValue() {
+            return CharBuffer.allocate(BUFFER_SIZE);
+        }
+    };
+
+    // Sends the requests, keeping the connections alive between them
+    private static volatile NewsTransport sTransport = OkHttpTransport.getInstance();
+
+    // Retries the transient failures a few times, then lets the API rest after repeated ones
+    private static volatile RetryPolicy sRetryPolicy = RetryPolicy.DEFAULT;
+    private static volatile CircuitBreaker sCircuitBreaker = new CircuitBreaker(5, 30000);
+
+    // The articles have their own breaker, so failed background prefetches never stop the
+    // news requests, nor use up their trial
+    private static volatile CircuitBreaker sArticleCircuitBreaker = new CircuitBreaker(5, 30000);
+
+    /**
+     * Replaces the transport the requests are sent with.
+     */
+    static void setTransport(NewsTransport transport) {
+        sTransport = transport;
+    }
+
+    static NewsTransport getTransport() {
+        return sTransport;
+    }
+
+    /**
+     * Replaces how the failed requests are retried and when the API is given a rest.
+     */
+    static void setResilience(RetryPolicy retryPolicy, CircuitBreaker circuitBreaker,
+                              CircuitBreaker articleCircuitBreaker) {
+        sRetryPolicy = retryPolicy;
+        sCircuitBreaker = circuitBreaker;
+        sArticleCircuitBreaker = articleCircuitBreaker;
+    }
+
+    static CircuitBreaker getCircuitBreaker() {
+        return sCircuitBreaker;
+    }
+
+    static CircuitBreaker getArticleCircuitBreaker() {
+        return sArticleCircuitBreaker;
+    }
+
+    static List<News> fetchNewsData(String requestUrl) throws NewsFetchException {
+        return fetchNewsData(requestUrl, null);
+    }
+
+    /**
+     * Fetches the news of the given URL, retrying the transient failures.
+     *
+     * @param call receives the request before it is sent, so the request can be aborted from
+     *             another thread; may be <code>null</code>
+     * @throws NewsFetchException when every attempt failed, the circuit is open or the call
+     *                            was cancelled
+     */
+    static List<News> fetchNewsData(String requestUrl, FetchCoordinator.Call call)
+            throws NewsFetchException {
+        long start = System.nanoTime();
         URL url = createUrl(requestUrl);
 
-        String jsonResponse = null;
+        Metrics metrics = Metrics.getInstance();
         try {
-            jsonResponse = makeHttpRequest(url);
-        } catch (IOException e) {
-            Log.e(TAG, "Problem making the HTTP request.", e);
+            List<News> news = fetchWithRetries(url, call);
+            metrics.increment(Metrics.RESULTS, news.size());
+            return news;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            metrics.record(Metrics.FETCH, elapsed);
+            NetworkPolicy.getInstance().recordFetch(elapsed);
+        }
+    }
+
+    private static List<News> fetchWithRetries(URL url, FetchCoordinator.Call call)
+            throws NewsFetchException {
+        RetryPolicy retryPolicy = sRetryPolicy;
+        CircuitBreaker circuitBreaker = sCircuitBreaker;
+
+        for (int attempt = 0; ; attempt++) {
+            try {
+                List<News> news = makeHttpRequest(url, call, circuitBreaker);
+                circuitBreaker.onSuccess();
+                return news;
+            } catch (NewsFetchException e) {
+                switch (e.getReason()) {
+                    case CIRCUIT_OPEN:
+                        throw e;
+                    case CANCELLED:
+                        circuitBreaker.onAbandoned();
+                        throw e;
+                    default:
+                        if (e.isTransient()) {
+                            circuitBreaker.onFailure(System.currentTimeMillis(),
+                                    e.getRetryAfterMillis());
+                        } else {
+                            // The API answered, so it is up
+                            circuitBreaker.onSuccess();
+                        }
+                }
+
+                long delay = retryPolicy.delayBeforeRetry(attempt, e);
+                if (delay == RetryPolicy.NO_RETRY) {
+                    throw e;
+                }
+
+                Log.w(TAG, "Retrying in " + delay + " ms after " + e.getReason() + " " + url);
+                Metrics.getInstance().increment(Metrics.RETRIES, 1);
+                awaitRetry(call, delay);
+            }
+        }
+    }
+
+    /**
+     * Waits before the next attempt, giving up as soon as the call is cancelled.
+     */
+    private static void awaitRetry(FetchCoordinator.Call call, long delayMillis)
+            throws NewsFetchException {
+        boolean cancelled;
+        try {
+            if (call != null) {
+                cancelled = !call.awaitRetry(delayMillis);
+            } else {
+                Thread.sleep(delayMillis);
+                cancelled = false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancelled = true;
         }
 
-        return extractNewsFromJson(jsonResponse);
+        if (cancelled) {
+            throw new NewsFetchException(NewsFetchException.Reason.CANCELLED,
+                    "Cancelled while waiting to retry");
+        }
     }
 
     /**
@@ -49,62 +223,342 @@ class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return the news parsed straight from the
+     * response stream. A fresh cached response skips the request, and a stale one is
+     * revalidated with its ETag and Last-Modified validators.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
-        String jsonResponse = "";
+    private static List<News> makeHttpRequest(URL url, FetchCoordinator.Call call,
+                                              CircuitBreaker circuitBreaker)
+            throws NewsFetchException {
+        List<News> news = Collections.emptyList();
 
         if (url == null) {
-            return jsonResponse;
+            return news;
+        }
+
+        HttpCache cache = HttpCache.getInstance();
+        String cacheKey = url.toString();
+        HttpCache.Entry cachedEntry = cache.get(cacheKey);
+
+        if (cachedEntry != null && cachedEntry.isFresh(System.currentTimeMillis())) {
+            cache.recordHit(cachedEntry);
+            return cachedEntry.news;
+        }
+
+        long now = System.currentTimeMillis();
+        if (!circuitBreaker.allowRequest(now)) {
+            Metrics.getInstance().recordError("circuit_open");
+            throw new NewsFetchException(NewsFetchException.Reason.CIRCUIT_OPEN,
+                    "Not sent for " + (circuitBreaker.getRetryAt(now) - now) + " ms " + url);
         }
 
-        HttpURLConnection urlConnection = null;
+        Map<String, String> headers = new HashMap<>();
+        // Asking for gzip explicitly turns off the transparent decoding, so the compressed
+        // size can be counted
+        headers.put("Accept-Encoding", "gzip");
+        if (cachedEntry != null) {
+            if (cachedEntry.eTag != null) {
+                headers.put("If-None-Match", cachedEntry.eTag);
+            }
+            if (cachedEntry.lastModified != null) {
+                headers.put("If-Modified-Since", cachedEntry.lastModified);
+            }
+        }
+
+        NewsTransport.Exchange exchange = sTransport.newExchange(url, headers);
+        if (call != null) {
+            call.setExchange(exchange);
+        }
+
+        // Closing the response rather than disconnecting hands the connection back to the
+        // pool for the next request
+        NewsTransport.Response response = null;
         InputStream inputStream = null;
         try {
-            urlConnection = (HttpURLConnection) url.openConnection();
-            urlConnection.setReadTimeout(10000 /* milliseconds */);
-            urlConnection.setConnectTimeout(15000 /* milliseconds */);
-            urlConnection.setRequestMethod("GET");
-            urlConnection.connect();
+            response = exchange.execute();
+
+            int responseCode = response.getCode();
+            now = System.currentTimeMillis();
 
             // If the request was successful (response code 200),
             // then read the input stream and parse the response.
-            if (urlConnection.getResponseCode() == 200) {
-                inputStream = urlConnection.getInputStream();
-                jsonResponse = readFromStream(inputStream);
+            if (responseCode == HttpURLConnection.HTTP_OK) {
+                CountingInputStream countingStream = new CountingInputStream(response.getBody());
+                inputStream = countingStream;
+                if ("gzip".equalsIgnoreCase(response.getHeader("Content-Encoding"))) {
+                    inputStream = new GZIPInputStream(countingStream);
+                }
+
+                long parseStart = System.nanoTime();
+                news = extractNewsFromStream(inputStream,
+                        charsetFromContentType(response.getHeader("Content-Type")));
+
+                // Only a body read to its end is cached
+                if (call != null && call.isCancelled()) {
+                    throw new IOException("Cancelled while reading the body");
+                }
+
+                // The body is parsed while it downloads, so the time spent waiting for the
+                // bytes is the download and the rest, inflating included, the parse
+                Metrics metrics = Metrics.getInstance();
+                long readNanos = countingStream.getReadNanos();
+                metrics.record(Metrics.DOWNLOAD, readNanos);
+                metrics.record(Metrics.PARSE, System.nanoTime() - parseStart - readNanos);
+                metrics.increment(Metrics.BYTES, countingStream.getCount());
+                NetworkPolicy.getInstance().recordBytes(countingStream.getCount());
+
+                cache.recordMiss(countingStream.getCount());
+                HttpCache.Entry entry = new HttpCache.Entry(
+                        response.getHeader("ETag"),
+                        response.getHeader("Last-Modified"),
+                        HttpCache.expiresAt(response.getHeader("Cache-Control"), now),
+                        news, countingStream.getCount());
+                if (entry.hasValidators() || entry.isFresh(now)) {
+                    cache.put(cacheKey, entry);
+                }
+            } else if (responseCode == HttpURLConnection.HTTP_NOT_MODIFIED
+                    && cachedEntry != null) {
+                cachedEntry.expiresAt = HttpCache.expiresAt(
+                        response.getHeader("Cache-Control"), now);
+                cache.recordNotModified(cachedEntry);
+                news = cachedEntry.news;
             } else {
-                Log.e(TAG, "Error response code: " + urlConnection.getResponseCode());
+                Log.e(TAG, "Error response code: " + responseCode);
+                Metrics.getInstance().recordError("http_" + responseCode / 100 + "xx");
+                throw NewsFetchException.fromResponse(responseCode, RetryPolicy.parseRetryAfter(
+                        response.getHeader("Retry-After"), now));
             }
+        } catch (NewsFetchException e) {
+            throw e;
         } catch (IOException e) {
-            Log.e(TAG, "Problem retrieving the books JSON results.", e);
+            if (call != null && call.isCancelled()) {
+                Log.d(TAG, "Request cancelled " + url);
+                throw new NewsFetchException(NewsFetchException.Reason.CANCELLED,
+                        "Request cancelled " + url, e, 0, NewsFetchException.NO_RETRY_AFTER);
+            }
+
+            Log.e(TAG, "Problem retrieving the news JSON results.", e);
+            Metrics.getInstance().recordError(errorCategory(e));
+            throw NewsFetchException.fromIOException(e);
         } finally {
-            if (urlConnection != null) {
-                urlConnection.disconnect();
+            closeQuietly(inputStream);
+            closeQuietly(response);
+        }
+        return news;
+    }
+
+    /**
+     * Fetches the HTML body of the article with the given web URL.
+     *
+     * @return the body, or <code>null</code> when the article has none
+     */
+    static String fetchArticleBody(String webUrl) throws IOException {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Accept-Encoding", "gzip");
+
+        long now = System.currentTimeMillis();
+        CircuitBreaker circuitBreaker = sArticleCircuitBreaker;
+        if (!circuitBreaker.allowRequest(now)) {
+            throw new NewsFetchException(NewsFetchException.Reason.CIRCUIT_OPEN,
+                    "Not sent for " + (circuitBreaker.getRetryAt(now) - now) + " ms " + webUrl);
+        }
+
+        NewsTransport.Response response;
+        try {
+            response = sTransport.newExchange(new URL(GuardianApi.articleUrl(webUrl)), headers)
+                    .execute();
+        } catch (IOException e) {
+            circuitBreaker.onFailure(System.currentTimeMillis(),
+                    NewsFetchException.NO_RETRY_AFTER);
+            throw NewsFetchException.fromIOException(e);
+        }
+
+        InputStream inputStream = null;
+        try {
+            if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                Metrics.getInstance().recordError("http_" + response.getCode() / 100 + "xx");
+                NewsFetchException failure = NewsFetchException.fromResponse(response.getCode(),
+                        RetryPolicy.parseRetryAfter(response.getHeader("Retry-After"), now));
+                if (failure.isTransient()) {
+                    circuitBreaker.onFailure(System.currentTimeMillis(),
+                            failure.getRetryAfterMillis());
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                throw failure;
             }
+            circuitBreaker.onSuccess();
+
+            CountingInputStream countingStream = new CountingInputStream(response.getBody());
+            inputStream = countingStream;
+            if ("gzip".equalsIgnoreCase(response.getHeader("Content-Encoding"))) {
+                inputStream = new GZIPInputStream(countingStream);
+            }
+
+            String body = extractBodyFromStream(inputStream,
+                    charsetFromContentType(response.getHeader("Content-Type")));
+            Metrics.getInstance().increment("article.bytes", countingStream.getCount());
+            return body;
+        } finally {
             if (inputStream != null) {
                 inputStream.close();
             }
+            response.close();
+        }
+    }
+
+    /**
+     * Reads the body field of a single content response, skipping everything else.
+     */
+    static String extractBodyFromStream(InputStream inputStream, Charset charset)
+            throws IOException {
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, charset));
+        try {
+            return findField(reader, new String[]{"response", "content", "fields", "body"}, 0);
+        } catch (IllegalStateException e) {
+            Metrics.getInstance().recordError("parse");
+            throw new NewsFetchException(NewsFetchException.Reason.PARSE,
+                    "Problem parsing the article JSON stream", e, 0,
+                    NewsFetchException.NO_RETRY_AFTER);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Returns the string at the given path of nested objects, starting at the given depth, or
+     * <code>null</code> when missing.
+     */
+    private static String findField(JsonReader reader, String[] path, int depth)
+            throws IOException {
+        String value = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (value != null || !path[depth].equals(name)) {
+                reader.skipValue();
+            } else if (depth == path.length - 1) {
+                value = nextStringOrNull(reader);
+            } else {
+                value = findField(reader, path, depth + 1);
+            }
+        }
+        reader.endObject();
+
+        return value;
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.w(TAG, "Problem closing the response", e);
+            }
+        }
+    }
+
+    /**
+     * Returns the category of a failed request counted in the {@link Metrics}.
+     */
+    static String errorCategory(IOException e) {
+        if (e instanceof UnknownHostException) {
+            return "dns";
+        } else if (e instanceof SocketTimeoutException) {
+            return "timeout";
+        } else if (e instanceof ConnectException) {
+            return "connect";
+        } else if (e instanceof SSLException) {
+            return "tls";
+        }
+        return "io";
+    }
+
+    /**
+     * Returns the charset declared in the given Content-Type header, or UTF-8 when it is missing
+     * or not supported.
+     */
+    static Charset charsetFromContentType(String contentType) {
+        if (contentType == null) {
+            return DEFAULT_CHARSET;
+        }
+
+        for (String param : contentType.split(";")) {
+            param = param.trim();
+            if (param.regionMatches(true, 0, CHARSET_PARAM, 0, CHARSET_PARAM.length())) {
+                String name = param.substring(CHARSET_PARAM.length()).replace("\"", "").trim();
+                try {
+                    return Charset.forName(name);
+                } catch (IllegalArgumentException e) {
+                    Log.w(TAG, "Unsupported response charset " + name);
+                }
+            }
         }
-        return jsonResponse;
+
+        return DEFAULT_CHARSET;
+    }
+
+    /**
+     * Reads the whole stream in chunks, decoding it with the given charset.
+     *
+     * @param contentLength the Content-Length of the response, or -1 when unknown, used to
+     *                      presize the result
+     */
+    static String readFromStream(InputStream inputStream, int contentLength, Charset charset)
+            throws IOException {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        ByteBuffer bytes = BYTE_BUFFER.get();
+        CharBuffer chars = CHAR_BUFFER.get();
+        bytes.clear();
+        chars.clear();
+
+        // A decoded String never has more chars than the encoded bytes
+        StringBuilder output = new StringBuilder(contentLength > 0 ? contentLength : BUFFER_SIZE);
+
+        int read;
+        while ((read = inputStream.read(bytes.array(), bytes.position(), bytes.remaining()))
+                != -1) {
+            bytes.position(bytes.position() + read);
+            bytes.flip();
+            decode(decoder, bytes, chars, output, false);
+
+            // Keeps the bytes of an incomplete char for the next chunk
+            bytes.compact();
+        }
+
+        bytes.flip();
+        decode(decoder, bytes, chars, output, true);
+        while (decoder.flush(chars) == CoderResult.OVERFLOW) {
+            drain(chars, output);
+        }
+        drain(chars, output);
+
+        return output.toString();
     }
 
-    private static String readFromStream(InputStream inputStream) throws IOException {
-        BufferedInputStream bis = new BufferedInputStream(inputStream);
-        ByteArrayOutputStream buf = new ByteArrayOutputStream();
-        int result = bis.read();
-        while (result != -1) {
-            buf.write((byte) result);
-            result = bis.read();
+    private static void decode(CharsetDecoder decoder, ByteBuffer bytes, CharBuffer chars,
+                               StringBuilder output, boolean endOfInput) {
+        while (decoder.decode(bytes, chars, endOfInput) == CoderResult.OVERFLOW) {
+            drain(chars, output);
         }
+        drain(chars, output);
+    }
 
-        return buf.toString();
+    private static void drain(CharBuffer chars, StringBuilder output) {
+        chars.flip();
+        output.append(chars);
+        chars.clear();
     }
 
     /**
      * Return a list of {@link News} objects that has been built up from
      * parsing the given JSON response.
      */
-    private static List<News> extractNewsFromJson(String newsJSON) {
+    static List<News> extractNewsFromJson(String newsJSON) {
         if (TextUtils.isEmpty(newsJSON)) {
             return Collections.emptyList();
         }
@@ -139,13 +593,169 @@ class QueryUtils {
                     firstPublicationDate = currentNewsFields.getString("firstPublicationDate");
                 }
 
-                news.add(new News(title, section, url, author, firstPublicationDate));
+                String thumbnail = null;
+                if (currentNewsFields.has("thumbnail")) {
+                    thumbnail = currentNewsFields.getString("thumbnail");
+                }
+
+                StringPool pool = StringPool.getShared();
+                news.add(new News(title, pool.intern(section), url, pool.intern(author),
+                        parseDate(firstPublicationDate), thumbnail));
             }
 
         } catch (JSONException e) {
             Log.e("QueryUtils", "Problem parsing the news JSON results", e);
+            Metrics.getInstance().recordError("parse");
         }
 
         return news;
     }
+
+    /**
+     * Return a list of {@link News} objects read token by token from the given JSON stream.
+     * Each {@link News} is created as soon as its result object closes, and the fields that
+     * are not used are skipped without being materialized.
+     *
+     * @throws NewsFetchException with {@link NewsFetchException.Reason#PARSE} when the JSON
+     *                            is malformed
+     * @throws IOException        when the stream fails before its end, a partial list of news
+     *                            never being returned
+     */
+    static List<News> extractNewsFromStream(InputStream inputStream, Charset charset)
+            throws IOException {
+        List<News> news = new ArrayList<>();
+
+        JsonReader reader = new JsonReader(new InputStreamReader(inputStream, charset));
+        try {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if ("response".equals(reader.nextName())) {
+                    readResponse(reader, news);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            // Reads up to the end of the body, so a body cut off after the JSON, or a gzip
+            // trailer that does not match, fails rather than passing as complete
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new MalformedJsonException("Unexpected content after the JSON");
+            }
+        } catch (MalformedJsonException | IllegalStateException e) {
+            Log.e(TAG, "Problem parsing the news JSON stream", e);
+            Metrics.getInstance().recordError("parse");
+            throw new NewsFetchException(NewsFetchException.Reason.PARSE,
+                    "Problem parsing the news JSON stream", e, 0,
+                    NewsFetchException.NO_RETRY_AFTER);
+        } finally {
+            closeQuietly(reader);
+        }
+
+        return news;
+    }
+
+    private static void readResponse(JsonReader reader, List<News> news) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if ("results".equals(reader.nextName())) {
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    News currentNews = readNews(reader);
+                    if (currentNews != null) {
+                        news.add(currentNews);
+                    }
+                }
+                reader.endArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    /**
+     * Reads one result object, returning <code>null</code> when a required field is missing.
+     */
+    private static News readNews(JsonReader reader) throws IOException {
+        String section = null;
+        String url = null;
+        String title = null;
+        String author = null;
+        String firstPublicationDate = null;
+        String thumbnail = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "sectionName":
+                    section = nextStringOrNull(reader);
+                    break;
+                case "webUrl":
+                    url = nextStringOrNull(reader);
+                    break;
+                case "fields":
+                    reader.beginObject();
+                    while (reader.hasNext()) {
+                        switch (reader.nextName()) {
+                            case "headline":
+                                title = nextStringOrNull(reader);
+                                break;
+                            case "byline":
+                                author = nextStringOrNull(reader);
+                                break;
+                            case "firstPublicationDate":
+                                firstPublicationDate = nextStringOrNull(reader);
+                                break;
+                            case "thumbnail":
+                                thumbnail = nextStringOrNull(reader);
+                                break;
+                            default:
+                                reader.skipValue();
+                        }
+                    }
+                    reader.endObject();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+
+        if (title == null || section == null || url == null) {
+            return null;
+        }
+
+        // Sections and bylines repeat across the news, so they share one instance each
+        StringPool pool = StringPool.getShared();
+        return new News(title, pool.intern(section), url, pool.intern(author),
+                parseDate(firstPublicationDate), thumbnail);
+    }
+
+    /**
+     * Converts a date of the API to epoch milliseconds.
+     *
+     * @return the milliseconds, or {@link News#NO_DATE} when the date is missing or invalid
+     */
+    static long parseDate(String date) {
+        if (date == null) {
+            return News.NO_DATE;
+        }
+
+        try {
+            return API_DATE_FORMAT.get().parse(date).getTime();
+        } catch (ParseException e) {
+            Log.d(TAG, "Error parsing news publish date " + date);
+            return News.NO_DATE;
+        }
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+
+        return reader.nextString();
+    }
 }
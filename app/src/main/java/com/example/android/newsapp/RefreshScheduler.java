@@ -0,0 +1,232 @@
+package com.example.android.newsapp;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.util.Locale;
+
+/**
+ * Refreshes the news while the app is in the foreground, at an interval following how fast
+ * the feed changes. Every refresh that brings no new news doubles the interval up to a
+ * ceiling, and every one that brings many halves it down to a floor. A refresh that never
+ * reports, like one that failed or brought the same news, counts as done after a timeout, so
+ * the refreshes never stop.
+ * <p>
+ * Must be used on the thread of the given handler.
+ */
+final class RefreshScheduler {
+
+    private static final String TAG = "RefreshScheduler";
+
+    // The interval never goes below or above these, in milliseconds
+    static final long MIN_INTERVAL_MILLIS = 60 * 1000;
+    static final long MAX_INTERVAL_MILLIS = 60 * 60 * 1000;
+
+    // Longer than a refresh takes with its retries and section timeouts, in milliseconds
+    static final long REFRESH_TIMEOUT_MILLIS = 60 * 1000;
+
+    /**
+     * Performs the refreshes, reporting each result with {@link #onRefreshed(int)}
+     */
+    interface Callback {
+        void onRefresh();
+    }
+
+    private final Handler mHandler;
+    private final Callback mCallback;
+
+    // A refresh bringing this many new news or more counts as busy
+    private final int mBusyThreshold;
+
+    private final long mMinInterval;
+    private final long mMaxInterval;
+    private final long mRefreshTimeout;
+
+    private long mInterval;
+
+    // When the news were last refreshed, in elapsed realtime
+    private long mLastRefreshAt = SystemClock.elapsedRealtime();
+
+    // Whether a refresh was requested and did not report yet
+    private boolean mRefreshing;
+
+    private boolean mStarted;
+
+    // Refreshes reported, and the new news they brought
+    private int mRefreshes;
+    private long mNewItems;
+    private int mLastNewItems;
+
+    private final Runnable mRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
+            mRefreshing = true;
+            mHandler.postDelayed(mTimeoutRunnable, mRefreshTimeout);
+            mCallback.onRefresh();
+        }
+    };
+
+    private final Runnable mTimeoutRunnable = new Runnable() {
+        @Override
+        public void run() {
+            onTimedOut();
+        }
+    };
+
+    RefreshScheduler(Handler handler, Callback callback, long initialIntervalMillis,
+                     int busyThreshold) {
+        this(handler, callback, initialIntervalMillis, busyThreshold, MIN_INTERVAL_MILLIS,
+                MAX_INTERVAL_MILLIS, REFRESH_TIMEOUT_MILLIS);
+    }
+
+    RefreshScheduler(Handler handler, Callback callback, long initialIntervalMillis,
+                     int busyThreshold, long minIntervalMillis, long maxIntervalMillis,
+                     long refreshTimeoutMillis) {
+        mHandler = handler;
+        mCallback = callback;
+        mBusyThreshold = Math.max(1, busyThreshold);
+        mMinInterval = minIntervalMillis;
+        mMaxInterval = maxIntervalMillis;
+        mRefreshTimeout = refreshTimeoutMillis;
+        mInterval = clamp(initialIntervalMillis);
+    }
+
+    /**
+     * Schedules the next refresh one interval after the last one, which is right away when the
+     * app comes back after longer than that.
+     */
+    void start() {
+        mStarted = true;
+        if (!mRefreshing) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Pauses the refreshes, for example while the app is in the background.
+     */
+    void stop() {
+        mStarted = false;
+        mRefreshing = false;
+        mHandler.removeCallbacks(mRefreshRunnable);
+        mHandler.removeCallbacks(mTimeoutRunnable);
+    }
+
+    /**
+     * Counts the news just reloaded for another reason, for example a new search, as fresh
+     * without adapting the interval to them.
+     */
+    void postpone() {
+        mRefreshing = false;
+        mHandler.removeCallbacks(mTimeoutRunnable);
+        mLastRefreshAt = SystemClock.elapsedRealtime();
+        if (mStarted) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Whether a refresh was requested and its result is still expected.
+     */
+    boolean isRefreshing() {
+        return mRefreshing;
+    }
+
+    /**
+     * Reports the result of the refresh requested, adapting the interval to it.
+     *
+     * @param newItems how many news the refresh added to the list
+     */
+    void onRefreshed(int newItems) {
+        mRefreshing = false;
+        mHandler.removeCallbacks(mTimeoutRunnable);
+        mLastRefreshAt = SystemClock.elapsedRealtime();
+
+        mRefreshes++;
+        mNewItems += newItems;
+        mLastNewItems = newItems;
+
+        if (newItems == 0) {
+            mInterval = clamp(mInterval * 2);
+        } else if (newItems >= mBusyThreshold) {
+            mInterval = clamp(mInterval / 2);
+        }
+
+        Log.d(TAG, toString());
+
+        Metrics metrics = Metrics.getInstance();
+        metrics.setGauge("refresh.new_items_last", newItems);
+        metrics.setGauge("refresh.new_items_per_refresh", getNewItemsPerRefresh());
+        metrics.setGauge("refresh.interval_s", mInterval / 1000);
+
+        if (mStarted) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Sets the interval the adaptation starts from again, for example when the user changes it.
+     */
+    void reset(long intervalMillis) {
+        mInterval = clamp(intervalMillis);
+        if (mStarted && !mRefreshing) {
+            scheduleNext();
+        }
+    }
+
+    /**
+     * Gives up on the result of the refresh requested, keeping the interval, since a refresh
+     * that failed tells nothing about how fast the feed changes.
+     */
+    private void onTimedOut() {
+        if (!mRefreshing) {
+            return;
+        }
+
+        Log.w(TAG, "Refresh not reported after " + mRefreshTimeout + " ms");
+        Metrics.getInstance().increment("refresh.timed_out", 1);
+        mRefreshing = false;
+        mLastRefreshAt = SystemClock.elapsedRealtime();
+        if (mStarted) {
+            scheduleNext();
+        }
+    }
+
+    private void scheduleNext() {
+        mHandler.removeCallbacks(mRefreshRunnable);
+        long elapsed = SystemClock.elapsedRealtime() - mLastRefreshAt;
+        mHandler.postDelayed(mRefreshRunnable, Math.max(0, mInterval - elapsed));
+    }
+
+    private long clamp(long intervalMillis) {
+        return Math.min(mMaxInterval, Math.max(mMinInterval, intervalMillis));
+    }
+
+    long getInterval() {
+        return mInterval;
+    }
+
+    int getRefreshes() {
+        return mRefreshes;
+    }
+
+    int getLastNewItems() {
+        return mLastNewItems;
+    }
+
+    /**
+     * Returns the average count of new news per refresh.
+     */
+    float getNewItemsPerRefresh() {
+        return mRefreshes > 0 ? (float) mNewItems / mRefreshes : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "refreshes=%d lastNewItems=%d newItemsPerRefresh=%.1f interval=%ds",
+                getRefreshes(), getLastNewItems(), getNewItemsPerRefresh(),
+                getInterval() / 1000);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+
+/**
+ * Decides whether and when a failed request is retried. The delays grow exponentially with
+ * full jitter, so the clients that failed together do not retry together, and a Retry-After
+ * sent by the server is honored as long as it is not longer than the longest delay.
+ */
+final class RetryPolicy {
+
+    static final RetryPolicy DEFAULT = new RetryPolicy(3, 500, 8000, new Random());
+
+    // Never retried
+    static final long NO_RETRY = -1;
+
+    // Retry-After can be an HTTP date, for example "Wed, 21 Oct 2015 07:28:00 GMT"
+    private static final ThreadLocal<SimpleDateFormat> HTTP_DATE_FORMAT =
+            new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    SimpleDateFormat format = new SimpleDateFormat(
+                            "EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+                    format.setTimeZone(TimeZone.getTimeZone("GMT"));
+                    return format;
+                }
+            };
+
+    private final int mMaxAttempts;
+    private final long mBaseDelayMillis;
+    private final long mMaxDelayMillis;
+    private final Random mRandom;
+
+    /**
+     * @param maxAttempts     how many times a request is sent at most, the first one included
+     * @param baseDelayMillis the longest delay before the first retry, doubled for each next one
+     * @param maxDelayMillis  the longest delay before any retry
+     */
+    RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis, Random random) {
+        mMaxAttempts = maxAttempts;
+        mBaseDelayMillis = baseDelayMillis;
+        mMaxDelayMillis = maxDelayMillis;
+        mRandom = random;
+    }
+
+    /**
+     * Returns how long to wait before retrying after the given failure.
+     *
+     * @param attempt the attempt that failed, starting at 0
+     * @return the delay in milliseconds, or {@link #NO_RETRY}
+     */
+    long delayBeforeRetry(int attempt, NewsFetchException failure) {
+        if (!failure.isTransient() || attempt + 1 >= mMaxAttempts) {
+            return NO_RETRY;
+        }
+
+        long retryAfter = failure.getRetryAfterMillis();
+        if (retryAfter != NewsFetchException.NO_RETRY_AFTER) {
+            // A longer wait is left to the circuit breaker
+            return retryAfter <= mMaxDelayMillis ? retryAfter : NO_RETRY;
+        }
+
+        long ceiling = Math.min(mMaxDelayMillis, mBaseDelayMillis << Math.min(attempt, 30));
+        synchronized (mRandom) {
+            return (long) (mRandom.nextDouble() * ceiling);
+        }
+    }
+
+    /**
+     * Converts a Retry-After header, in seconds or as an HTTP date, to milliseconds from now.
+     *
+     * @return the delay, or {@link NewsFetchException#NO_RETRY_AFTER} when missing or invalid
+     */
+    static long parseRetryAfter(String retryAfter, long now) {
+        if (retryAfter == null) {
+            return NewsFetchException.NO_RETRY_AFTER;
+        }
+
+        String value = retryAfter.trim();
+        try {
+            return Math.max(0, Long.parseLong(value) * 1000);
+        } catch (NumberFormatException e) {
+            // Not in seconds, so it should be a date
+        }
+
+        try {
+            return Math.max(0, HTTP_DATE_FORMAT.get().parse(value).getTime() - now);
+        } catch (ParseException e) {
+            return NewsFetchException.NO_RETRY_AFTER;
+        }
+    }
+}
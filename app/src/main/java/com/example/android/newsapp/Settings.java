@@ -0,0 +1,346 @@
+package com.example.android.newsapp;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+import android.content.res.Resources;
+import android.os.Handler;
+import android.os.Looper;
+import android.preference.PreferenceManager;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The settings of the app, read from the preferences once, off the main thread, and kept
+ * parsed and validated in memory. A value that cannot be used, like a page size typed as
+ * "1.5", falls back to its default. The listeners are told about the edits once they pause,
+ * so editing several settings in a row reloads the news only once.
+ * <p>
+ * The getters wait for the settings to be read. The main thread never waits, it calls them
+ * from {@link #whenLoaded(Runnable)}.
+ */
+final class Settings {
+
+    private static final String TAG = "Settings";
+
+    // Edits closer together than this are told as one change, in milliseconds
+    static final long COALESCE_MILLIS = 250;
+
+    // The page sizes and update intervals accepted, in minutes for the intervals
+    static final int MIN_PAGE_SIZE = 1;
+    static final int MAX_PAGE_SIZE = 50;
+    static final int MIN_UPDATE_INTERVAL = 1;
+    static final int MAX_UPDATE_INTERVAL = 24 * 60;
+
+    /**
+     * Told on the main thread when settings changed
+     */
+    interface Listener {
+
+        /**
+         * @param keys the preference keys of the settings that changed
+         */
+        void onSettingsChanged(Set<String> keys);
+    }
+
+    private static Settings sInstance;
+
+    private final String mPageSizeKey;
+    private final String mUpdateIntervalKey;
+    private final String mSectionsKey;
+    private final String mMutedSectionsKey;
+    private final String mMutedAuthorsKey;
+
+    private final int mDefaultPageSize;
+    private final int mDefaultUpdateInterval;
+    private final Set<String> mDefaultSections;
+
+    private volatile int mPageSize;
+    private volatile int mUpdateInterval;
+    private volatile Set<String> mSections;
+    private volatile Set<String> mMutedSections;
+    private volatile Set<String> mMutedAuthors;
+
+    // Opened once the preferences are read from disk
+    private final CountDownLatch mLoaded = new CountDownLatch(1);
+
+    // Whether the main thread was told the preferences are read, used on the main thread
+    private boolean mLoadedOnMain;
+
+    // Waiting for the preferences to be read, used on the main thread
+    private final List<Runnable> mPendingRunnables = new ArrayList<>();
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    private final List<Listener> mListeners = new ArrayList<>();
+
+    // The keys edited since the listeners were last told, used on the main thread
+    private final Set<String> mChangedKeys = new LinkedHashSet<>();
+
+    private final Runnable mNotifyRunnable = new Runnable() {
+        @Override
+        public void run() {
+            Set<String> keys = Collections.unmodifiableSet(new HashSet<>(mChangedKeys));
+            mChangedKeys.clear();
+            for (Listener listener : new ArrayList<>(mListeners)) {
+                listener.onSettingsChanged(keys);
+            }
+        }
+    };
+
+    // The preferences only keep a weak reference to their listeners
+    private final OnSharedPreferenceChangeListener mPreferenceListener =
+            new OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences prefs, String key) {
+                    if (read(prefs, key)) {
+                        mChangedKeys.add(key);
+                        mMainHandler.removeCallbacks(mNotifyRunnable);
+                        mMainHandler.postDelayed(mNotifyRunnable, COALESCE_MILLIS);
+                    }
+                }
+            };
+
+    /**
+     * Returns the settings, starting to read them in the background the first time.
+     */
+    static synchronized Settings getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new Settings(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    private Settings(final Context context) {
+        Resources resources = context.getResources();
+        mPageSizeKey = resources.getString(R.string.settings_page_size_key);
+        mUpdateIntervalKey = resources.getString(R.string.settings_update_interval_key);
+        mSectionsKey = resources.getString(R.string.settings_sections_key);
+        mMutedSectionsKey = resources.getString(R.string.settings_muted_sections_key);
+        mMutedAuthorsKey = resources.getString(R.string.settings_muted_authors_key);
+
+        mDefaultPageSize = Integer.parseInt(
+                resources.getString(R.string.settings_page_size_default));
+        mDefaultUpdateInterval = Integer.parseInt(
+                resources.getString(R.string.settings_update_interval_default));
+        mDefaultSections = Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(
+                resources.getStringArray(R.array.settings_sections_default))));
+
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                // Listens first, so an edit made while the keys are read is not missed
+                SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(context);
+                prefs.registerOnSharedPreferenceChangeListener(mPreferenceListener);
+                for (String key : new String[]{mPageSizeKey, mUpdateIntervalKey, mSectionsKey,
+                        mMutedSectionsKey, mMutedAuthorsKey}) {
+                    read(prefs, key);
+                }
+                mLoaded.countDown();
+
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mLoadedOnMain = true;
+                        List<Runnable> runnables = new ArrayList<>(mPendingRunnables);
+                        mPendingRunnables.clear();
+                        for (Runnable runnable : runnables) {
+                            runnable.run();
+                        }
+                    }
+                });
+            }
+        }, "settings-load").start();
+    }
+
+    /**
+     * Runs the given runnable on the main thread once the settings are read, right away when
+     * they are. The runnables run in the order they were given. Must be called on the main
+     * thread.
+     */
+    void whenLoaded(Runnable runnable) {
+        if (mLoadedOnMain) {
+            runnable.run();
+        } else {
+            mPendingRunnables.add(runnable);
+        }
+    }
+
+    /**
+     * Returns whether the settings are read, so the getters return right away. Must be called
+     * on the main thread.
+     */
+    boolean isLoaded() {
+        return mLoadedOnMain;
+    }
+
+    /**
+     * Drops a runnable given to {@link #whenLoaded(Runnable)} that did not run yet.
+     */
+    void cancelWhenLoaded(Runnable runnable) {
+        mPendingRunnables.remove(runnable);
+    }
+
+    void addListener(Listener listener) {
+        mListeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        mListeners.remove(listener);
+    }
+
+    String getPageSizeKey() {
+        return mPageSizeKey;
+    }
+
+    String getUpdateIntervalKey() {
+        return mUpdateIntervalKey;
+    }
+
+    String getSectionsKey() {
+        return mSectionsKey;
+    }
+
+    String getMutedSectionsKey() {
+        return mMutedSectionsKey;
+    }
+
+    String getMutedAuthorsKey() {
+        return mMutedAuthorsKey;
+    }
+
+    int getPageSize() {
+        awaitLoaded();
+        return mPageSize;
+    }
+
+    /**
+     * Returns the interval of the background sync and of the foreground refreshes, in minutes.
+     */
+    int getUpdateInterval() {
+        awaitLoaded();
+        return mUpdateInterval;
+    }
+
+    /**
+     * Returns the tags of the sections chosen, sorted so the same choice always builds the
+     * same requests, or the default ones when none is.
+     */
+    Set<String> getSections() {
+        awaitLoaded();
+        return mSections;
+    }
+
+    Set<String> getMutedSections() {
+        awaitLoaded();
+        return mMutedSections;
+    }
+
+    Set<String> getMutedAuthors() {
+        awaitLoaded();
+        return mMutedAuthors;
+    }
+
+    /**
+     * Parses the given setting into memory.
+     *
+     * @return whether the key is one of the settings
+     */
+    private boolean read(SharedPreferences prefs, String key) {
+        if (mPageSizeKey.equals(key)) {
+            mPageSize = parseInt(prefs.getString(key, null), mDefaultPageSize, MIN_PAGE_SIZE,
+                    MAX_PAGE_SIZE);
+        } else if (mUpdateIntervalKey.equals(key)) {
+            mUpdateInterval = parseInt(prefs.getString(key, null), mDefaultUpdateInterval,
+                    MIN_UPDATE_INTERVAL, MAX_UPDATE_INTERVAL);
+        } else if (mSectionsKey.equals(key)) {
+            Set<String> sections = prefs.getStringSet(key, null);
+            mSections = sections == null || sections.isEmpty() ? mDefaultSections
+                    : Collections.unmodifiableSet(new TreeSet<>(sections));
+        } else if (mMutedSectionsKey.equals(key)) {
+            mMutedSections = parseList(prefs.getString(key, null));
+        } else if (mMutedAuthorsKey.equals(key)) {
+            mMutedAuthors = parseList(prefs.getString(key, null));
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Parses a whole number typed in the settings.
+     *
+     * @return the number, or the default one when it is missing, not a whole number or out of
+     * the given range
+     */
+    static int parseInt(String value, int defaultValue, int min, int max) {
+        if (value == null) {
+            return defaultValue;
+        } else if (!isValidInt(value, min, max)) {
+            Log.w(TAG, "Invalid setting \"" + value + "\", using " + defaultValue);
+            return defaultValue;
+        }
+
+        return Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Returns whether the given text is a whole number in the given range.
+     */
+    static boolean isValidInt(String value, int min, int max) {
+        try {
+            int number = Integer.parseInt(value.trim());
+            return number >= min && number <= max;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Parses comma separated values, dropping the blank ones.
+     */
+    static Set<String> parseList(String value) {
+        if (value == null) {
+            return Collections.emptySet();
+        }
+
+        Set<String> values = new HashSet<>();
+        for (String item : value.split(",")) {
+            if (!item.trim().isEmpty()) {
+                values.add(item.trim());
+            }
+        }
+        return Collections.unmodifiableSet(values);
+    }
+
+    /**
+     * Waits for the preferences to be read, which started along with the app.
+     */
+    private void awaitLoaded() {
+        if (mLoaded.getCount() > 0 && Looper.myLooper() == Looper.getMainLooper()) {
+            Log.w(TAG, "Settings read on the main thread before they were loaded",
+                    new IllegalStateException());
+        }
+
+        boolean interrupted = false;
+        while (mLoaded.getCount() > 0) {
+            try {
+                mLoaded.await();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -1,12 +1,20 @@
 package com.example.android.newsapp;
 
+import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
+import android.preference.MultiSelectListPreference;
 import android.preference.Preference;
 import android.preference.Preference.OnPreferenceChangeListener;
 import android.preference.PreferenceFragment;
 import android.preference.PreferenceManager;
 import android.support.v7.app.AppCompatActivity;
+import android.text.TextUtils;
+import android.widget.Toast;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 public class SettingsActivity extends AppCompatActivity {
 
@@ -31,22 +39,91 @@ public class SettingsActivity extends AppCompatActivity {
             Preference updateInterval = findPreference(
                 getString(R.string.settings_update_interval_key));
             bindPreferenceSummaryToValue(updateInterval);
+
+            Preference sections = findPreference(
+                getString(R.string.settings_sections_key));
+            bindPreferenceSummaryToValue(sections);
+
+            Preference metrics = findPreference(getString(R.string.settings_metrics_key));
+            if (BuildConfig.DEBUG) {
+                metrics.setIntent(new Intent(getActivity(), MetricsActivity.class));
+            } else {
+                getPreferenceScreen().removePreference(metrics);
+            }
         }
 
         @Override
         public boolean onPreferenceChange(Preference preference, Object newValue) {
+            if (preference instanceof MultiSelectListPreference) {
+                preference.setSummary(getSelectedEntries(
+                    (MultiSelectListPreference) preference, (Set<?>) newValue));
+                return true;
+            }
+
             String stringValue = newValue.toString();
+
+            // Keeps the previous value rather than storing one the app cannot use
+            if (preference.getKey().equals(getString(R.string.settings_page_size_key))) {
+                if (!isValidInt(stringValue, Settings.MIN_PAGE_SIZE, Settings.MAX_PAGE_SIZE)) {
+                    return false;
+                }
+            } else if (preference.getKey().equals(
+                getString(R.string.settings_update_interval_key))) {
+                if (!isValidInt(stringValue, Settings.MIN_UPDATE_INTERVAL,
+                    Settings.MAX_UPDATE_INTERVAL)) {
+                    return false;
+                }
+            }
+
             preference.setSummary(stringValue);
 
             return true;
         }
 
+        /**
+         * Checks a whole number typed in the settings, telling the user when it is not one.
+         */
+        private boolean isValidInt(String value, int min, int max) {
+            if (Settings.isValidInt(value, min, max)) {
+                return true;
+            }
+
+            Toast.makeText(getActivity(), getString(R.string.settings_invalid_number, min, max),
+                Toast.LENGTH_LONG).show();
+            return false;
+        }
+
         private void bindPreferenceSummaryToValue(Preference preference) {
             preference.setOnPreferenceChangeListener(this);
             SharedPreferences preferences = PreferenceManager
                 .getDefaultSharedPreferences(preference.getContext());
-            String preferenceString = preferences.getString(preference.getKey(), "");
-            onPreferenceChange(preference, preferenceString);
+
+            if (preference instanceof MultiSelectListPreference) {
+                onPreferenceChange(preference,
+                    ((MultiSelectListPreference) preference).getValues());
+                return;
+            }
+
+            // A value stored before the validation is shown as it is
+            preference.setSummary(preferences.getString(preference.getKey(), ""));
+        }
+
+        /**
+         * Returns the labels of the selected values, in the order of the entries.
+         */
+        private String getSelectedEntries(MultiSelectListPreference preference,
+            Set<?> values) {
+            CharSequence[] entries = preference.getEntries();
+            CharSequence[] entryValues = preference.getEntryValues();
+
+            List<CharSequence> selected = new ArrayList<>();
+            for (int i = 0; i < entryValues.length; i++) {
+                if (values.contains(entryValues[i].toString())) {
+                    selected.add(entries[i]);
+                }
+            }
+
+            return TextUtils.join(", ", selected);
         }
     }
 }
\ No newline at end of file
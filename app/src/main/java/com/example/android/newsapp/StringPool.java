@@ -0,0 +1,52 @@
+package com.example.android.newsapp;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded pool of strings, so the values repeated across the news, like the section names and
+ * the bylines, share one instance. The least recently used strings leave the pool first.
+ */
+final class StringPool {
+
+    // How many strings the shared pool keeps
+    private static final int SHARED_POOL_SIZE = 512;
+
+    private static final StringPool sShared = new StringPool(SHARED_POOL_SIZE);
+
+    private final Map<String, String> mStrings;
+
+    static StringPool getShared() {
+        return sShared;
+    }
+
+    StringPool(final int maxSize) {
+        mStrings = new LinkedHashMap<String, String>(maxSize, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the pooled string equal to the given one, pooling it when there is none.
+     */
+    synchronized String intern(String string) {
+        if (string == null) {
+            return null;
+        }
+
+        String pooled = mStrings.get(string);
+        if (pooled == null) {
+            mStrings.put(string, string);
+            pooled = string;
+        }
+
+        return pooled;
+    }
+
+    synchronized int size() {
+        return mStrings.size();
+    }
+}
@@ -0,0 +1,314 @@
+package com.example.android.newsapp;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.annotation.NonNull;
+import android.util.Log;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads the thumbnails of the news into image views. The bitmaps are decoded off the main
+ * thread, downsampled to the size of the view, and kept in a memory cache bounded in bytes in
+ * front of a disk cache of the downloaded files.
+ * <p>
+ * A view only shows the last thumbnail asked for it: loading another one into a recycled view,
+ * or cancelling it, aborts the previous request.
+ */
+final class ThumbnailLoader {
+
+    private static final String TAG = "ThumbnailLoader";
+
+    // Share of the heap the decoded bitmaps may take
+    private static final int MEMORY_CACHE_DIVIDER = 8;
+
+    private static final long DISK_CACHE_BYTES = 20 * 1024 * 1024;
+
+    private static final int THREAD_COUNT = 3;
+
+    private static ThumbnailLoader sInstance;
+
+    private final LruCache<String, Bitmap> mMemoryCache;
+
+    private final DiskCache mDiskCache;
+
+    private final ExecutorService mExecutor;
+
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    static synchronized ThumbnailLoader getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ThumbnailLoader(context.getApplicationContext());
+        }
+
+        return sInstance;
+    }
+
+    private ThumbnailLoader(Context context) {
+        int maxBytes = (int) Math.min(Integer.MAX_VALUE,
+                Runtime.getRuntime().maxMemory() / MEMORY_CACHE_DIVIDER);
+        mMemoryCache = new LruCache<String, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(String key, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+
+        mDiskCache = new DiskCache(new File(context.getCacheDir(), "thumbnails"),
+                DISK_CACHE_BYTES);
+
+        // The requests run in the order asked, the rows scrolled away cancelling theirs
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(THREAD_COUNT, THREAD_COUNT, 30,
+                TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+        executor.allowCoreThreadTimeOut(true);
+        mExecutor = executor;
+
+        context.registerComponentCallbacks(new ComponentCallbacks2() {
+            @Override
+            public void onTrimMemory(int level) {
+                if (level >= TRIM_MEMORY_MODERATE) {
+                    mMemoryCache.evictAll();
+                } else if (level >= TRIM_MEMORY_BACKGROUND) {
+                    mMemoryCache.trimToSize(mMemoryCache.maxSize() / 2);
+                }
+            }
+
+            @Override
+            public void onConfigurationChanged(Configuration newConfig) {
+            }
+
+            @Override
+            public void onLowMemory() {
+                mMemoryCache.evictAll();
+            }
+        });
+    }
+
+    /**
+     * Shows the thumbnail of the given URL in the view, decoded for the given size in pixels.
+     * Must be called on the main thread.
+     */
+    void load(@NonNull String url, @NonNull ImageView view, int width, int height) {
+        String key = keyFor(url, width, height);
+
+        Request previous = (Request) view.getTag(R.id.thumbnail_request);
+        if (previous != null && previous.mKey.equals(key)) {
+            // Already on its way
+            return;
+        }
+        cancel(view);
+
+        Bitmap bitmap = mMemoryCache.get(key);
+        if (bitmap != null) {
+            Metrics.getInstance().increment("thumbnail.memory_hit", 1);
+            view.setImageBitmap(bitmap);
+            return;
+        }
+
+        view.setImageDrawable(null);
+        Request request = new Request(url, key, view, width, height);
+        view.setTag(R.id.thumbnail_request, request);
+        request.mFuture = mExecutor.submit(request);
+    }
+
+    /**
+     * Aborts the thumbnail request of the view, if any. Must be called on the main thread.
+     */
+    void cancel(@NonNull ImageView view) {
+        Request request = (Request) view.getTag(R.id.thumbnail_request);
+        if (request != null) {
+            view.setTag(R.id.thumbnail_request, null);
+            request.cancel();
+            Metrics.getInstance().increment("thumbnail.cancelled", 1);
+        }
+    }
+
+    Bitmap getBitmap(String key) {
+        return mMemoryCache.get(key);
+    }
+
+    void putBitmap(String key, Bitmap bitmap) {
+        mMemoryCache.put(key, bitmap);
+    }
+
+    int getMemoryCacheSize() {
+        return mMemoryCache.size();
+    }
+
+    int getMemoryCacheMaxSize() {
+        return mMemoryCache.maxSize();
+    }
+
+    static String keyFor(String url, int width, int height) {
+        return url + "@" + width + "x" + height;
+    }
+
+    /**
+     * Decodes the image file at the largest power of two scale that still covers the given
+     * size, without ever decoding it at full size.
+     *
+     * @return the bitmap, or <code>null</code> when the file is not an image
+     */
+    static Bitmap decodeSampled(File file, int width, int height) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(file.getPath(), options);
+
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight,
+                width, height);
+        options.inJustDecodeBounds = false;
+        // Thumbnails have no transparency, so half the bytes per pixel are enough
+        options.inPreferredConfig = Bitmap.Config.RGB_565;
+
+        return BitmapFactory.decodeFile(file.getPath(), options);
+    }
+
+    static int calculateInSampleSize(int imageWidth, int imageHeight, int width, int height) {
+        int inSampleSize = 1;
+        if (width <= 0 || height <= 0) {
+            return inSampleSize;
+        }
+
+        while (imageWidth / (inSampleSize * 2) >= width
+                && imageHeight / (inSampleSize * 2) >= height) {
+            inSampleSize *= 2;
+        }
+
+        return inSampleSize;
+    }
+
+    /**
+     * Downloads if needed, decodes and delivers one thumbnail
+     */
+    private final class Request implements Runnable {
+
+        private final String mUrl;
+        private final String mKey;
+        private final ImageView mView;
+        private final int mWidth;
+        private final int mHeight;
+
+        private volatile boolean mCancelled;
+        private volatile NewsTransport.Exchange mExchange;
+        private Future<?> mFuture;
+
+        Request(String url, String key, ImageView view, int width, int height) {
+            mUrl = url;
+            mKey = key;
+            mView = view;
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public void run() {
+            if (mCancelled) {
+                return;
+            }
+
+            final Bitmap bitmap;
+            try {
+                bitmap = loadBitmap();
+            } catch (IOException e) {
+                if (!mCancelled) {
+                    Log.e(TAG, "Problem loading the thumbnail " + mUrl, e);
+                    Metrics.getInstance().recordError("thumbnail");
+                }
+                return;
+            }
+
+            if (bitmap == null) {
+                return;
+            }
+            mMemoryCache.put(mKey, bitmap);
+
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    // The view may have been rebound to another news meanwhile
+                    if (mView.getTag(R.id.thumbnail_request) == Request.this) {
+                        mView.setTag(R.id.thumbnail_request, null);
+                        mView.setImageBitmap(bitmap);
+                    }
+                }
+            });
+        }
+
+        private Bitmap loadBitmap() throws IOException {
+            File file = mDiskCache.get(mUrl);
+            if (file != null) {
+                Metrics.getInstance().increment("thumbnail.disk_hit", 1);
+            } else {
+                file = download();
+                if (file == null) {
+                    return null;
+                }
+            }
+
+            if (mCancelled) {
+                return null;
+            }
+
+            long start = System.nanoTime();
+            Bitmap bitmap = decodeSampled(file, mWidth, mHeight);
+            Metrics.getInstance().record(Metrics.THUMBNAIL_DECODE, System.nanoTime() - start);
+            return bitmap;
+        }
+
+        private File download() throws IOException {
+            Map<String, String> headers = Collections.emptyMap();
+            NewsTransport.Exchange exchange =
+                    QueryUtils.getTransport().newExchange(new URL(mUrl), headers);
+            mExchange = exchange;
+            if (mCancelled) {
+                return null;
+            }
+
+            NewsTransport.Response response = exchange.execute();
+            try {
+                if (response.getCode() != HttpURLConnection.HTTP_OK) {
+                    Log.e(TAG, "Error response code: " + response.getCode());
+                    Metrics.getInstance().recordError("thumbnail");
+                    return null;
+                }
+
+                CountingInputStream body = new CountingInputStream(response.getBody());
+                File file = mDiskCache.put(mUrl, body);
+                Metrics.getInstance().increment("thumbnail.bytes", body.getCount());
+                return file;
+            } finally {
+                response.close();
+            }
+        }
+
+        void cancel() {
+            mCancelled = true;
+            if (mFuture != null) {
+                // Skipped when it did not start yet
+                mFuture.cancel(false);
+            }
+
+            NewsTransport.Exchange exchange = mExchange;
+            if (exchange != null) {
+                exchange.cancel();
+            }
+        }
+    }
+}
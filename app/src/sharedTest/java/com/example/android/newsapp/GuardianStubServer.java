@@ -0,0 +1,239 @@
+package com.example.android.newsapp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * A local stand-in for the Guardian content API, replaying the responses recorded in
+ * <code>guardian/</code> with a controllable latency, bandwidth and number of results. Point
+ * the app at it with {@link GuardianApi#setBaseUrl} and {@link #getBaseUrl}.
+ */
+final class GuardianStubServer {
+
+    private static final String SEARCH_RESPONSE = "guardian/search.json";
+    private static final String CONTENT_RESPONSE = "guardian/content.json";
+
+    // The photos are not recorded, so their requests stay local and fail
+    private static final String MEDIA_HOST = "https://media.guim.co.uk/";
+    private static final String MEDIA_PATH = "/media/";
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([^\"]+)\"");
+
+    // How often a throttled body is sent, in milliseconds
+    private static final long THROTTLE_PERIOD_MILLIS = 100;
+
+    private final MockWebServer mServer = new MockWebServer();
+
+    // The recorded search response, around its results, and each of its results
+    private final String mSearchPrefix;
+    private final String mSearchSuffix;
+    private final List<String> mResults;
+
+    private final String mContent;
+
+    private volatile long mLatencyMillis;
+    private volatile long mBytesPerSecond;
+    private volatile int mResultCount;
+    private volatile boolean mGzip = true;
+
+    GuardianStubServer() throws IOException {
+        String search = readResource(SEARCH_RESPONSE);
+        int resultsStart = search.indexOf('[', search.indexOf("\"results\"")) + 1;
+        int resultsEnd = search.lastIndexOf(']');
+        mSearchPrefix = search.substring(0, resultsStart);
+        mSearchSuffix = search.substring(resultsEnd);
+        mResults = splitObjects(search.substring(resultsStart, resultsEnd));
+        mResultCount = mResults.size();
+
+        mContent = readResource(CONTENT_RESPONSE);
+    }
+
+    void start() throws IOException {
+        mServer.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return respond(request);
+            }
+        });
+        mServer.start();
+    }
+
+    void shutdown() throws IOException {
+        mServer.shutdown();
+    }
+
+    /**
+     * Returns the URL to give to {@link GuardianApi#setBaseUrl}.
+     */
+    String getBaseUrl() {
+        String url = mServer.url("/").toString();
+        return url.substring(0, url.length() - 1);
+    }
+
+    int getRequestCount() {
+        return mServer.getRequestCount();
+    }
+
+    /**
+     * Delays the headers of every response.
+     */
+    void setLatency(long millis) {
+        mLatencyMillis = millis;
+    }
+
+    /**
+     * Limits how fast the bodies are sent, 0 for as fast as possible.
+     */
+    void setBandwidth(long bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Sets how many results each page of a search has, the recorded ones being repeated under
+     * new IDs as needed.
+     */
+    void setResultCount(int resultCount) {
+        mResultCount = resultCount;
+    }
+
+    /**
+     * Whether the bodies are gzip compressed when the request accepts it, as the API does.
+     */
+    void setGzip(boolean gzip) {
+        mGzip = gzip;
+    }
+
+    /**
+     * Returns the body of a page of search results, as it is sent before compression.
+     */
+    String searchBody(int page) {
+        int resultCount = mResultCount;
+        StringBuilder body = new StringBuilder(mSearchPrefix.length() + mSearchSuffix.length()
+                + resultCount * mResults.get(0).length());
+        body.append(mSearchPrefix);
+        for (int i = 0; i < resultCount; i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+
+            // Each page has its own news, so the pages never merge into each other
+            int copy = (page - 1) * resultCount + i;
+            String result = mResults.get(copy % mResults.size());
+            if (copy >= mResults.size()) {
+                Matcher id = ID.matcher(result);
+                if (id.find()) {
+                    result = result.replace(id.group(1), id.group(1) + "-" + copy);
+                }
+            }
+            body.append(result);
+        }
+        body.append(mSearchSuffix);
+
+        return body.toString().replace(MEDIA_HOST, getBaseUrl() + MEDIA_PATH);
+    }
+
+    private MockResponse respond(RecordedRequest request) {
+        HttpUrl url = request.getRequestUrl();
+        if (url.encodedPath().startsWith(MEDIA_PATH)) {
+            return new MockResponse().setResponseCode(404);
+        }
+
+        String body;
+        if (url.encodedPath().equals("/search")) {
+            String page = url.queryParameter(GuardianApi.PAGE_PARAM);
+            body = searchBody(page != null ? Integer.parseInt(page) : 1);
+        } else {
+            body = mContent;
+        }
+
+        MockResponse response = new MockResponse()
+                .setHeader("Content-Type", "application/json; charset=UTF-8")
+                .setHeadersDelay(mLatencyMillis, TimeUnit.MILLISECONDS);
+
+        String acceptEncoding = request.getHeader("Accept-Encoding");
+        if (mGzip && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            response.setHeader("Content-Encoding", "gzip").setBody(gzip(body));
+        } else {
+            response.setBody(body);
+        }
+
+        long bytesPerSecond = mBytesPerSecond;
+        if (bytesPerSecond > 0) {
+            response.throttleBody(Math.max(1, bytesPerSecond * THROTTLE_PERIOD_MILLIS / 1000),
+                    THROTTLE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        return response;
+    }
+
+    private static Buffer gzip(String body) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            GZIPOutputStream outputStream = new GZIPOutputStream(bytes);
+            outputStream.write(body.getBytes(QueryUtils.DEFAULT_CHARSET));
+            outputStream.close();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+
+        return new Buffer().write(bytes.toByteArray());
+    }
+
+    /**
+     * Splits the objects of a JSON array, without its brackets, keeping each one as written.
+     */
+    private static List<String> splitObjects(String array) {
+        List<String> objects = new ArrayList<>();
+        int depth = 0;
+        int start = -1;
+        boolean inString = false;
+        for (int i = 0; i < array.length(); i++) {
+            char c = array.charAt(i);
+            if (inString) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                if (depth++ == 0) {
+                    start = i;
+                }
+            } else if (c == '}' && --depth == 0) {
+                objects.add(array.substring(start, i + 1));
+            }
+        }
+
+        return objects;
+    }
+
+    private static String readResource(String name) throws IOException {
+        InputStream inputStream = GuardianStubServer.class.getClassLoader()
+                .getResourceAsStream(name);
+        if (inputStream == null) {
+            throw new IOException("Missing recorded response " + name);
+        }
+
+        try {
+            return QueryUtils.readFromStream(inputStream, -1, QueryUtils.DEFAULT_CHARSET);
+        } finally {
+            inputStream.close();
+        }
+    }
+}
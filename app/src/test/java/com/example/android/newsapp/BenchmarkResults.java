@@ -0,0 +1,37 @@
+package com.example.android.newsapp;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes the results of the local benchmarks to <code>build/benchmarks</code> of the module, one
+ * CSV file per benchmark, replaced on every run.
+ */
+final class BenchmarkResults {
+
+    private static final File DIRECTORY = new File("build", "benchmarks");
+
+    private BenchmarkResults() {
+    }
+
+    /**
+     * Writes the given CSV, its first line naming the columns, to the file of the benchmark.
+     */
+    static File write(String benchmark, String csv) throws IOException {
+        if (!DIRECTORY.isDirectory() && !DIRECTORY.mkdirs()) {
+            throw new IOException("Cannot create " + DIRECTORY.getAbsolutePath());
+        }
+
+        File file = new File(DIRECTORY, benchmark + ".csv");
+        Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writer.write(csv);
+        } finally {
+            writer.close();
+        }
+        return file;
+    }
+}
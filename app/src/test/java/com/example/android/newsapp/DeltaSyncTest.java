@@ -0,0 +1,54 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Merges the news of a delta into the stored ones.
+ */
+public class DeltaSyncTest {
+
+    @Test
+    public void newestDate_skipsTheNewsWithoutDate() {
+        assertEquals(30, DeltaSync.newestDate(Arrays.asList(news("a", 10),
+                news("b", News.NO_DATE), news("c", 30))));
+        assertEquals(News.NO_DATE, DeltaSync.newestDate(Collections.<News>emptyList()));
+    }
+
+    @Test
+    public void merge_putsTheNewNewsFirstOnceAndCaps() {
+        List<News> stored = Arrays.asList(news("c", 30), news("b", 20), news("a", 10));
+        // The newest stored news comes back, since the from-date bound is inclusive
+        List<News> delta = Arrays.asList(news("e", 50), news("d", 40), news("c", 30));
+
+        List<News> merged = DeltaSync.merge(delta, stored, 4);
+
+        assertEquals(Arrays.asList("e", "d", "c", "b"), urls(merged));
+    }
+
+    @Test
+    public void merge_keepsTheStoredNewsWhenNothingIsNew() {
+        List<News> stored = Arrays.asList(news("b", 20), news("a", 10));
+
+        assertEquals(Arrays.asList("b", "a"),
+                urls(DeltaSync.merge(Collections.<News>emptyList(), stored, 10)));
+    }
+
+    private static News news(String url, long date) {
+        return new News("Title of " + url, "World", url, null, date);
+    }
+
+    private static List<String> urls(List<News> news) {
+        List<String> urls = new ArrayList<>(news.size());
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls;
+    }
+}
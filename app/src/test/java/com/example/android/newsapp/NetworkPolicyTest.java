@@ -0,0 +1,121 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Shapes the requests after the network type and the throughput measured on the fetches.
+ */
+public class NetworkPolicyTest {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static final long NOW = 1000000;
+
+    @Test
+    public void unmetered_keepsThePreferencesAndPrefetches() {
+        NetworkPolicy policy = new NetworkPolicy();
+        policy.setNetworkType(true, false, false);
+
+        assertEquals(NetworkPolicy.NetworkClass.UNMETERED, policy.getNetworkClass());
+        assertEquals(20, policy.pageSize(20));
+        assertEquals(5, policy.articlePrefetchCount(5));
+        assertEquals(60000, policy.refreshIntervalMillis(60000));
+        assertEquals(NetworkPolicy.BASE_FIELDS + "," + NetworkPolicy.THUMBNAIL_FIELD,
+                policy.showFields());
+    }
+
+    @Test
+    public void metered_putsOffThePrefetchAndRefreshesLessOften() {
+        NetworkPolicy policy = new NetworkPolicy();
+        policy.setNetworkType(true, true, false);
+
+        assertEquals(20, policy.pageSize(20));
+        assertEquals(0, policy.articlePrefetchCount(5));
+        assertEquals(120000, policy.refreshIntervalMillis(60000));
+    }
+
+    @Test
+    public void slowThroughput_shrinksThePagesAndDropsTheThumbnails() {
+        NetworkPolicy policy = new NetworkPolicy();
+        policy.setNetworkType(true, true, false);
+
+        // 8 KB in a second
+        policy.recordThroughput(8 * 1024, ONE_SECOND, NOW);
+
+        assertEquals(NetworkPolicy.NetworkClass.SLOW, policy.getNetworkClass());
+        assertEquals(10, policy.pageSize(20));
+        assertEquals(NetworkPolicy.MIN_PAGE_SIZE, policy.pageSize(6));
+        assertEquals(3, policy.pageSize(3));
+        assertEquals(NetworkPolicy.BASE_FIELDS, policy.showFields());
+        assertEquals(240000, policy.refreshIntervalMillis(60000));
+    }
+
+    @Test
+    public void slowNetwork_recoversOnceFastAgain() {
+        NetworkPolicy policy = new NetworkPolicy();
+        policy.setNetworkType(true, true, false);
+        policy.recordThroughput(8 * 1024, ONE_SECOND, NOW);
+
+        // 256 KB in a second, a few times
+        for (int i = 0; i < 3; i++) {
+            policy.recordThroughput(256 * 1024, ONE_SECOND, NOW + i);
+        }
+
+        assertEquals(NetworkPolicy.NetworkClass.METERED, policy.getNetworkClass());
+        assertEquals(20, policy.pageSize(20));
+    }
+
+    @Test
+    public void slowNetwork_isProbedAgainOnceItsThroughputIsStale() {
+        NetworkPolicy policy = new NetworkPolicy();
+        policy.setNetworkType(true, true, false);
+        policy.recordThroughput(8 * 1024, ONE_SECOND, NOW);
+
+        policy.forgetStaleThroughput(NOW + NetworkPolicy.MAX_SAMPLE_AGE_MILLIS);
+        assertEquals(NetworkPolicy.NetworkClass.SLOW, policy.getNetworkClass());
+
+        // The small pages of a slow network may never measure it again
+        policy.forgetStaleThroughput(NOW + NetworkPolicy.MAX_SAMPLE_AGE_MILLIS + 1);
+        assertEquals(NetworkPolicy.NetworkClass.METERED, policy.getNetworkClass());
+        assertEquals(0, policy.getBytesPerSecond(), 0);
+        assertEquals(NetworkPolicy.BASE_FIELDS + "," + NetworkPolicy.THUMBNAIL_FIELD,
+                policy.showFields());
+    }
+
+    @Test
+    public void bytesReceived_addUpOverTheResponses() {
+        NetworkPolicy policy = new NetworkPolicy();
+
+        policy.recordBytes(1000);
+        policy.recordBytes(500);
+
+        assertEquals(1500, policy.getBytesReceived());
+    }
+
+    @Test
+    public void smallResponses_doNotMeasureTheThroughput() {
+        NetworkPolicy policy = new NetworkPolicy();
+        policy.setNetworkType(true, false, false);
+
+        policy.recordThroughput(NetworkPolicy.MIN_SAMPLE_BYTES - 1, ONE_SECOND, NOW);
+
+        assertEquals(0, policy.getBytesPerSecond(), 0);
+        assertEquals(NetworkPolicy.NetworkClass.UNMETERED, policy.getNetworkClass());
+    }
+
+    @Test
+    public void networkChange_forgetsTheThroughputOfThePreviousNetwork() {
+        NetworkPolicy policy = new NetworkPolicy();
+        policy.setNetworkType(true, true, false);
+        policy.recordThroughput(8 * 1024, ONE_SECOND, NOW);
+
+        policy.setNetworkType(true, false, false);
+
+        assertEquals(NetworkPolicy.NetworkClass.UNMETERED, policy.getNetworkClass());
+        assertEquals(0, policy.getBytesPerSecond(), 0);
+    }
+}
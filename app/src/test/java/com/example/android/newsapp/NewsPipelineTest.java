@@ -0,0 +1,110 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Runs small feeds through each stage, and a large merged feed through the parallel path,
+ * which must give the same news as one thread.
+ */
+public class NewsPipelineTest {
+
+    @Test
+    public void stages_filterDedupeSortAndCap() {
+        List<News> news = Arrays.asList(
+                news("a", "World news", "Maya Patel", 10),
+                news("b", "Football", null, 30),
+                news("a", "World news", "Maya Patel", 10),
+                news("c", "Science", "Tom Fisher", News.NO_DATE),
+                news("d", "Business", "tom fisher", 20),
+                news("e", "Technology", null, 40));
+
+        NewsPipeline pipeline = new NewsPipeline(
+                NewsPipeline.muteSections(new HashSet<>(Collections.singletonList("football"))),
+                NewsPipeline.muteAuthors(new HashSet<>(Collections.singletonList("Tom Fisher "))),
+                NewsPipeline.distinctUrls(),
+                NewsPipeline.newestFirst(),
+                NewsPipeline.limit(2));
+
+        List<News> processed = pipeline.process(news);
+
+        assertEquals(Arrays.asList("e", "a"), urls(processed));
+    }
+
+    @Test
+    public void newestFirst_putsTheNewsWithoutDateLast() {
+        List<News> processed = new NewsPipeline(NewsPipeline.newestFirst()).process(
+                Arrays.asList(news("a", "World", null, News.NO_DATE), news("b", "World", null, 1),
+                        news("c", "World", null, 2)));
+
+        assertEquals(Arrays.asList("c", "b", "a"), urls(processed));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void process_deliversAListThatCannotBeModified() {
+        new NewsPipeline().process(new ArrayList<News>()).add(news("a", "World", null, 1));
+    }
+
+    @Test
+    public void largeFeed_givesTheSameNewsInParallel() {
+        Random random = new Random(3);
+        List<News> news = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            // Unique dates, so the order does not depend on how the slices are merged
+            news.add(news("url-" + random.nextInt(4000), i % 7 == 0 ? "Muted" : "World",
+                    null, i * 1000L + random.nextInt(1000)));
+        }
+        Collections.shuffle(news, random);
+
+        NewsPipeline pipeline = new NewsPipeline(
+                NewsPipeline.muteSections(new HashSet<>(Collections.singletonList("muted"))),
+                NewsPipeline.distinctUrls(),
+                NewsPipeline.newestFirst());
+        List<News> processed = pipeline.process(news);
+
+        // The same processing, written out on one thread
+        List<String> expected = new ArrayList<>();
+        List<News> kept = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (News currentNews : news) {
+            if (!"Muted".equals(currentNews.getSection()) && seen.add(currentNews.getUrl())) {
+                kept.add(currentNews);
+            }
+        }
+        Collections.sort(kept, new Comparator<News>() {
+            @Override
+            public int compare(News first, News second) {
+                return Long.compare(second.getDate(), first.getDate());
+            }
+        });
+        for (News currentNews : kept) {
+            expected.add(currentNews.getUrl());
+        }
+
+        assertTrue(processed.size() > 1000);
+        assertEquals(expected, urls(processed));
+    }
+
+    private static News news(String url, String section, String author, long date) {
+        return new News("Title of " + url, section, url, author, date);
+    }
+
+    private static List<String> urls(List<News> news) {
+        List<String> urls = new ArrayList<>(news.size());
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Searches the news indexed, within the bound of the index.
+ */
+public class NewsSearchIndexTest {
+
+    @Test
+    public void search_matchesEveryWordAsAPrefix() {
+        NewsSearchIndex index = new NewsSearchIndex(10);
+        index.addAll(Arrays.asList(news("a", "Budget vote delayed"),
+                news("b", "Vote on the budget"), news("c", "Election results")));
+
+        assertEquals(Arrays.asList("a", "b"), urls(index.search("budg vot")));
+        assertEquals(Collections.singletonList("c"), urls(index.search("ELECT")));
+    }
+
+    @Test
+    public void fullIndex_evictsTheNewsLoadedLongestAgo() {
+        NewsSearchIndex index = new NewsSearchIndex(2);
+        index.addAll(Arrays.asList(news("a", "Budget vote"), news("b", "Budget talks")));
+
+        // Loading the first one again makes the second the oldest
+        index.addAll(Collections.singletonList(news("a", "Budget vote")));
+        index.addAll(Collections.singletonList(news("c", "Election talks")));
+
+        assertEquals(2, index.size());
+        assertEquals(Collections.singletonList("a"), urls(index.search("budget")));
+        assertEquals(Collections.singletonList("c"), urls(index.search("talks")));
+    }
+
+    @Test
+    public void replacedNews_dropsItsOldWords() {
+        NewsSearchIndex index = new NewsSearchIndex(10);
+        index.addAll(Collections.singletonList(news("a", "Budget vote delayed")));
+
+        index.addAll(Collections.singletonList(news("a", "Budget vote passed")));
+
+        assertEquals(Collections.<String>emptyList(), urls(index.search("delayed")));
+        assertEquals(Collections.singletonList("a"), urls(index.search("passed")));
+    }
+
+    private static News news(String url, String title) {
+        return new News(title, "Politics", url, null, News.NO_DATE);
+    }
+
+    private static List<String> urls(List<News> news) {
+        List<String> urls = new ArrayList<>(news.size());
+        for (News currentNews : news) {
+            urls.add(currentNews.getUrl());
+        }
+        return urls;
+    }
+}
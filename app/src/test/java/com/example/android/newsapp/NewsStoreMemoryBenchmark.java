@@ -0,0 +1,96 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures the retained heap per article of 1,000 and 10,000 cached articles, comparing one
+ * object per news with copied strings, as parsed before, against the {@link NewsStore}. The
+ * results are written by {@link BenchmarkResults}.
+ */
+public class NewsStoreMemoryBenchmark {
+
+    private static final String[] SECTIONS = {"Politics", "UK news", "World news", "Opinion"};
+
+    private static final String[] AUTHORS = {"Guardian staff", "Heather Stewart",
+            "Rowena Mason", "Peter Walker", "Jessica Elgot"};
+
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    @Test
+    public void newsStore_keepsTheNews() throws Exception {
+        NewsStore store = new NewsStore();
+        List<News> news = buildNews(100, true);
+        store.addAll(news);
+
+        assertEquals(news.size(), store.size());
+        for (int i = 0; i < news.size(); i++) {
+            assertEquals(news.get(i).getUrl(), store.get(i).getUrl());
+            assertEquals(news.get(i).getTitle(), store.get(i).getTitle());
+            assertEquals(news.get(i).getSection(), store.get(i).getSection());
+            assertEquals(news.get(i).getAuthor(), store.get(i).getAuthor());
+            assertEquals(news.get(i).getDate(), store.get(i).getDate());
+        }
+    }
+
+    @Test
+    public void compareBytesPerArticle() throws Exception {
+        StringBuilder csv = new StringBuilder("articles,object_bytes_per_article,"
+                + "store_bytes_per_article\n");
+        for (int count : new int[]{1000, 10000}) {
+            long heap = usedHeap();
+            List<News> copied = buildNews(count, false);
+            long copiedBytes = usedHeap() - heap;
+
+            heap = usedHeap();
+            NewsStore store = new NewsStore();
+            store.addAll(buildNews(count, true));
+            long storeBytes = usedHeap() - heap;
+
+            // Keeps both alive until measured
+            assertEquals(copied.size(), store.size());
+
+            csv.append(String.format(Locale.US, "%d,%d,%d\n", count, copiedBytes / count,
+                    storeBytes / count));
+        }
+
+        BenchmarkResults.write("news-store-memory", csv.toString());
+    }
+
+    /**
+     * Builds news like the API returns them, with a new copy of every repeated string unless
+     * they are pooled.
+     */
+    private static List<News> buildNews(int count, boolean pooled) {
+        StringPool pool = new StringPool(64);
+        List<News> news = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String section = new String(SECTIONS[i % SECTIONS.length].toCharArray());
+            String author = new String(AUTHORS[i % AUTHORS.length].toCharArray());
+            if (pooled) {
+                section = pool.intern(section);
+                author = pool.intern(author);
+            }
+
+            news.add(new News("Headline of the article number " + i, section,
+                    "https://www.theguardian.com/politics/2017/aug/" + i + "/article", author,
+                    1500000000000L + (i % 30) * DAY_MILLIS));
+        }
+
+        return news;
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            runtime.gc();
+            Thread.sleep(50);
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
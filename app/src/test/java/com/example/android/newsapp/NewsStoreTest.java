@@ -0,0 +1,30 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Reads back the news stored in the columns.
+ */
+public class NewsStoreTest {
+
+    @Test
+    public void get_keepsWhetherTheNewsWasFormatted() {
+        News news = new News("Title", "World", "https://example.com/1", null, News.NO_DATE);
+        NewsStore store = new NewsStore();
+        store.add(news);
+        // Formatted, but without byline nor date to show
+        store.add(new News(news, null, null));
+        store.add(new News(news, "By Tom Fisher", "18 Oct"));
+
+        assertFalse(store.get(0).isFormatted());
+        assertTrue(store.get(1).isFormatted());
+        assertNull(store.get(1).getDisplayAuthor());
+        assertTrue(store.get(2).isFormatted());
+        assertEquals("18 Oct", store.get(2).getDisplayDate().toString());
+    }
+}
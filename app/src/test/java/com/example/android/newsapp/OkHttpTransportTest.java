@@ -0,0 +1,87 @@
+package com.example.android.newsapp;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sends the requests of a few refreshes and pages to a local server, and checks how many of
+ * them went over a connection already open.
+ */
+public class OkHttpTransportTest {
+
+    private static final int REQUEST_COUNT = 20;
+
+    private static final String BODY = "{\"response\":{\"results\":[]}}";
+
+    private MockWebServer mServer;
+
+    @Before
+    public void setUp() throws Exception {
+        mServer = new MockWebServer();
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            mServer.enqueue(new MockResponse().setBody(BODY));
+        }
+        mServer.start();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void sequentialRequests_reuseTheConnection() throws Exception {
+        OkHttpTransport transport = new OkHttpTransport();
+
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            assertEquals(BODY, get(transport, "/search?page=" + (i + 1)));
+        }
+
+        assertEquals(REQUEST_COUNT, transport.getRequests());
+        assertEquals(1, transport.getConnections());
+        assertEquals(REQUEST_COUNT, mServer.getRequestCount());
+
+        // The server numbers the requests of each connection from 0
+        mServer.takeRequest();
+        for (int i = 1; i < REQUEST_COUNT; i++) {
+            assertTrue(mServer.takeRequest().getSequenceNumber() > 0);
+        }
+    }
+
+    @Test
+    public void newClientPerRequest_neverReusesTheConnection() throws Exception {
+        long connections = 0;
+        for (int i = 0; i < REQUEST_COUNT; i++) {
+            OkHttpTransport transport = new OkHttpTransport();
+            get(transport, "/search?page=" + (i + 1));
+            connections += transport.getConnections();
+        }
+
+        assertEquals(REQUEST_COUNT, connections);
+    }
+
+    private String get(OkHttpTransport transport, String path) throws IOException {
+        Map<String, String> headers = Collections.emptyMap();
+        NewsTransport.Response response =
+                transport.newExchange(mServer.url(path).url(), headers).execute();
+        try {
+            assertEquals(200, response.getCode());
+            InputStream body = response.getBody();
+            return QueryUtils.readFromStream(body, -1, QueryUtils.DEFAULT_CHARSET);
+        } finally {
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.Charset;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Micro-benchmark of the chunked {@link QueryUtils#readFromStream} against the former byte by
+ * byte implementation, using 1 MB and 10 MB synthetic Guardian payloads. The results are written
+ * by {@link BenchmarkResults}.
+ */
+public class ReadFromStreamBenchmark {
+
+    private static final int ITERATIONS = 5;
+
+    private static final int ONE_MB = 1024 * 1024;
+
+    @Test
+    public void charsetFromContentType_defaultsToUtf8() throws Exception {
+        assertEquals(QueryUtils.DEFAULT_CHARSET, QueryUtils.charsetFromContentType(null));
+        assertEquals(QueryUtils.DEFAULT_CHARSET,
+                QueryUtils.charsetFromContentType("application/json"));
+        assertEquals(Charset.forName("ISO-8859-1"),
+                QueryUtils.charsetFromContentType("application/json; Charset=\"ISO-8859-1\""));
+        assertEquals(QueryUtils.DEFAULT_CHARSET,
+                QueryUtils.charsetFromContentType("application/json; charset=unknown"));
+    }
+
+    @Test
+    public void readFromStream_decodesMultiByteCharsAcrossChunks() throws Exception {
+        String expected = buildPayload(64 * 1024);
+        byte[] bytes = expected.getBytes(QueryUtils.DEFAULT_CHARSET);
+
+        // Content-Length is only a hint, so a wrong one must not change the result
+        assertEquals(expected, QueryUtils.readFromStream(new ByteArrayInputStream(bytes),
+                bytes.length, QueryUtils.DEFAULT_CHARSET));
+        assertEquals(expected, QueryUtils.readFromStream(new ByteArrayInputStream(bytes),
+                -1, QueryUtils.DEFAULT_CHARSET));
+    }
+
+    @Test
+    public void compareImplementations() throws Exception {
+        StringBuilder csv = new StringBuilder("size_mb,byte_by_byte_mb_per_s,"
+                + "byte_by_byte_allocated_kb,chunked_mb_per_s,chunked_allocated_kb\n");
+        for (int size : new int[]{ONE_MB, 10 * ONE_MB}) {
+            byte[] payload = buildPayload(size).getBytes(QueryUtils.DEFAULT_CHARSET);
+
+            // Warm up both implementations before measuring
+            readByteByByte(new ByteArrayInputStream(payload));
+            QueryUtils.readFromStream(new ByteArrayInputStream(payload), payload.length,
+                    QueryUtils.DEFAULT_CHARSET);
+
+            long legacyTime = 0;
+            long legacyAllocated = 0;
+            long chunkedTime = 0;
+            long chunkedAllocated = 0;
+            for (int i = 0; i < ITERATIONS; i++) {
+                long allocated = allocatedBytes();
+                long start = System.nanoTime();
+                readByteByByte(new ByteArrayInputStream(payload));
+                legacyTime += System.nanoTime() - start;
+                legacyAllocated += allocatedBytes() - allocated;
+
+                allocated = allocatedBytes();
+                start = System.nanoTime();
+                QueryUtils.readFromStream(new ByteArrayInputStream(payload), payload.length,
+                        QueryUtils.DEFAULT_CHARSET);
+                chunkedTime += System.nanoTime() - start;
+                chunkedAllocated += allocatedBytes() - allocated;
+            }
+
+            csv.append(String.format(Locale.US, "%d,%.1f,%d,%.1f,%d\n", size / ONE_MB,
+                    throughput(payload.length, legacyTime), legacyAllocated / ITERATIONS / 1024,
+                    throughput(payload.length, chunkedTime),
+                    chunkedAllocated / ITERATIONS / 1024));
+        }
+
+        BenchmarkResults.write("read-from-stream", csv.toString());
+    }
+
+    /**
+     * The implementation that was replaced, kept here as the baseline.
+     */
+    private static String readByteByByte(InputStream inputStream) throws IOException {
+        BufferedInputStream bis = new BufferedInputStream(inputStream);
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        int result = bis.read();
+        while (result != -1) {
+            buf.write((byte) result);
+            result = bis.read();
+        }
+
+        return buf.toString();
+    }
+
+    private static double throughput(int bytes, long totalNanos) {
+        return (bytes / (double) ONE_MB) / (totalNanos / (double) ITERATIONS / 1e9);
+    }
+
+    /**
+     * Bytes allocated by the current thread, or 0 when the JVM does not expose it.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean)
+                    .getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+
+        return 0;
+    }
+
+    /**
+     * Builds a Guardian-like response of roughly the given size in bytes.
+     */
+    static String buildPayload(int size) {
+        StringBuilder json = new StringBuilder(size + 512)
+                .append("{\"response\":{\"status\":\"ok\",\"results\":[");
+        for (int i = 0; json.length() < size; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"sectionName\":\"Politics\",")
+                    .append("\"webUrl\":\"https://www.theguardian.com/politics/").append(i)
+                    // Multi-byte UTF-8 chars, so some of them straddle the chunk boundaries
+                    .append("\",\"fields\":{\"headline\":\"Brexit d\u00e9bat n\u00b0 ")
+                    .append(i).append(" \u2013 \u201cquoted\u201d \u20ac\",")
+                    .append("\"byline\":\"Guardian staff\",")
+                    .append("\"firstPublicationDate\":\"2017-08-20T10:00:00Z\"}}");
+        }
+
+        return json.append("]}}").toString();
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks when the circuit breaker lets the requests through, and how long the retry policy
+ * waits before a retry.
+ */
+public class RetryPolicyTest {
+
+    @Test
+    public void circuitBreaker_letsATrialThroughAfterTheCoolDown() {
+        CircuitBreaker circuitBreaker = new CircuitBreaker(2, 1000);
+        circuitBreaker.onFailure(0, NewsFetchException.NO_RETRY_AFTER);
+        assertTrue(circuitBreaker.allowRequest(0));
+        circuitBreaker.onFailure(0, NewsFetchException.NO_RETRY_AFTER);
+
+        assertTrue(!circuitBreaker.allowRequest(999));
+        assertTrue(circuitBreaker.allowRequest(1000));
+
+        // Only one trial at a time, and a failed trial opens the circuit again
+        assertTrue(!circuitBreaker.allowRequest(1000));
+        circuitBreaker.onFailure(1000, NewsFetchException.NO_RETRY_AFTER);
+        assertTrue(!circuitBreaker.allowRequest(1999));
+        assertTrue(circuitBreaker.allowRequest(2000));
+
+        circuitBreaker.onSuccess();
+        assertTrue(!circuitBreaker.isOpen());
+    }
+
+    @Test
+    public void retryDelays_stayWithinTheJitteredBackoff() {
+        RetryPolicy retryPolicy = new RetryPolicy(5, 100, 300, new Random(7));
+        NewsFetchException failure = NewsFetchException.fromResponse(503,
+                NewsFetchException.NO_RETRY_AFTER);
+
+        for (int i = 0; i < 100; i++) {
+            long first = retryPolicy.delayBeforeRetry(0, failure);
+            long third = retryPolicy.delayBeforeRetry(2, failure);
+            assertTrue(first >= 0 && first <= 100);
+            assertTrue(third >= 0 && third <= 300);
+        }
+
+        assertEquals(RetryPolicy.NO_RETRY, retryPolicy.delayBeforeRetry(4, failure));
+        assertEquals(RetryPolicy.NO_RETRY, retryPolicy.delayBeforeRetry(0,
+                NewsFetchException.fromResponse(403, NewsFetchException.NO_RETRY_AFTER)));
+    }
+
+    @Test
+    public void retryAfter_isParsedAsSecondsOrDate() {
+        assertEquals(120000, RetryPolicy.parseRetryAfter("120", 0));
+        assertEquals(30000, RetryPolicy.parseRetryAfter("Thu, 01 Jan 1970 00:00:30 GMT", 0));
+        assertEquals(NewsFetchException.NO_RETRY_AFTER, RetryPolicy.parseRetryAfter("soon", 0));
+        assertEquals(NewsFetchException.NO_RETRY_AFTER, RetryPolicy.parseRetryAfter(null, 0));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.android.newsapp;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses the values typed in the settings, which may not be usable.
+ */
+public class SettingsTest {
+
+    @Test
+    public void parseInt_fallsBackToTheDefaultForUnusableValues() {
+        assertEquals(20, Settings.parseInt(" 20 ", 10, 1, 50));
+        assertEquals(10, Settings.parseInt(null, 10, 1, 50));
+        assertEquals(10, Settings.parseInt("", 10, 1, 50));
+        assertEquals(10, Settings.parseInt("1.5", 10, 1, 50));
+        assertEquals(10, Settings.parseInt("0", 10, 1, 50));
+        assertEquals(10, Settings.parseInt("51", 10, 1, 50));
+        assertEquals(10, Settings.parseInt("99999999999", 10, 1, 50));
+    }
+
+    @Test
+    public void isValidInt_acceptsTheBoundsOnly() {
+        assertTrue(Settings.isValidInt("1", 1, 50));
+        assertTrue(Settings.isValidInt("50", 1, 50));
+        assertFalse(Settings.isValidInt("-3", 1, 50));
+        assertFalse(Settings.isValidInt("ten", 1, 50));
+    }
+
+    @Test
+    public void parseList_dropsTheBlankValues() {
+        assertEquals(new HashSet<>(Arrays.asList("Football", "Tom Fisher")),
+                Settings.parseList("Football, ,Tom Fisher ,"));
+        assertEquals(Collections.emptySet(), Settings.parseList(null));
+    }
+}